@@ -0,0 +1,71 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Who runs what. DataStore and track/event state belong to the global region, each player's
+ * timer belongs to that player's region. On Paper both of those are just the main thread,
+ * on Folia they're separate threads so anything crossing over has to be handed off.
+ */
+public final class Scheduling {
+
+    private static final boolean FOLIA = classExists("io.papermc.paper.threadedregions.RegionizedServer");
+
+    private Scheduling() {}
+
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * Runs on the global region, right away if we're already there.
+     */
+    public static void runGlobal(Plugin plugin, Runnable task) {
+        if (Bukkit.isGlobalTickThread()) {
+            task.run();
+        } else {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        }
+    }
+
+    /**
+     * Runs on the entity's region, right away if we're already there. Dropped if the entity is
+     * gone by then.
+     */
+    public static void runFor(Plugin plugin, Entity entity, Runnable task) {
+        if (Bukkit.isOwnedByCurrentRegion(entity)) {
+            task.run();
+        } else {
+            entity.getScheduler().execute(plugin, task, null, 1L);
+        }
+    }
+
+    private static boolean classExists(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
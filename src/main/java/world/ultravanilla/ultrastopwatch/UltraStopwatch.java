@@ -23,11 +23,11 @@ import world.ultravanilla.ultrastopwatch.command.StartRunCommand;
 import world.ultravanilla.ultrastopwatch.command.TrackCommand;
 import world.ultravanilla.ultrastopwatch.command.StopwatchCommand;
 import world.ultravanilla.ultrastopwatch.listener.TimerListener;
+import world.ultravanilla.ultrastopwatch.listener.TriggerRegistry;
+import world.ultravanilla.ultrastopwatch.model.Track;
 import world.ultravanilla.ultrastopwatch.storage.DataStore;
 import world.ultravanilla.ultrastopwatch.timer.TimerManager;
 
-import java.util.List;
-
 public class UltraStopwatch extends JavaPlugin {
 
     private DataStore dataStore;
@@ -51,15 +51,15 @@ public class UltraStopwatch extends JavaPlugin {
         new StopwatchCommand(timerManager).register();
         new StartRunCommand(timerManager).register();
 
+        TriggerRegistry triggers = TriggerRegistry.load(getConfig().getConfigurationSection("triggers"),
+                getConfig().getString("casual-trigger", Track.DEFAULT_TRIGGER), getLogger());
+
         int leaderboardSize = getConfig().getInt("leaderboard-size", 10);
-        List<Integer> pointsTable = getConfig().getIntegerList("points-table");
-        if (pointsTable.isEmpty()) {
-            pointsTable = List.of(10, 8, 6, 5, 4, 3, 2, 1);
-        }
-        new TrackCommand(this, dataStore, timerManager, leaderboardSize, pointsTable).register();
+        new TrackCommand(this, dataStore, timerManager, triggers, leaderboardSize).register();
 
         // Event listeners
-        getServer().getPluginManager().registerEvents(new TimerListener(timerManager, dataStore), this);
+        getServer().getPluginManager().registerEvents(new TimerListener(this, timerManager, dataStore, triggers,
+                getConfig().getBoolean("auto-arm-start-lines", false)), this);
 
         // we did it!! :D
         getLogger().info("UltraStopwatch has been enabled!");
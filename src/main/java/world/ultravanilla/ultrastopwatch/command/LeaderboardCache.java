@@ -0,0 +1,197 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.command;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.plugin.Plugin;
+import world.ultravanilla.ultrastopwatch.Scheduling;
+import world.ultravanilla.ultrastopwatch.model.RaceEvent;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+import world.ultravanilla.ultrastopwatch.storage.DataStore;
+import world.ultravanilla.ultrastopwatch.storage.EventStandings;
+import world.ultravanilla.ultrastopwatch.storage.RankedLeaderboard;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Rendered leaderboard pages, reused until the board or event standings behind them change
+ * (their version counters, or a reset swapping the board out). A crowd checking the board
+ * after a race gets the same components instead of each rendering their own. Global region
+ * only, like the commands using it.
+ */
+final class LeaderboardCache {
+
+    private static final int MAX_PAGES = 256;
+
+    /**
+     * @param lines one per entry
+     * @param ownLines the same lines highlighted, for whoever owns them
+     */
+    record Page(int pages, int total, List<UUID> owners, List<Component> lines, List<Component> ownLines) {
+
+        Component line(int i, UUID viewer) {
+            return owners.get(i).equals(viewer) ? ownLines.get(i) : lines.get(i);
+        }
+    }
+
+    private record Cached(Object source, long version, Page page) {}
+
+    private final Plugin plugin;
+    private final DataStore dataStore;
+    private final Map<String, Cached> pages = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Cached> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    // Events whose leaderboards are loading, everyone asking meanwhile waits on the same one
+    private final Map<String, CompletableFuture<EventStandings>> building = new HashMap<>();
+    private long hits;
+    private long misses;
+
+    LeaderboardCache(Plugin plugin, DataStore dataStore) {
+        this.plugin = plugin;
+        this.dataStore = dataStore;
+    }
+
+    /**
+     * One page of a ready track leaderboard, 1-based. Pages past the end come back empty.
+     */
+    Page trackPage(String trackName, RankedLeaderboard board, int page, int pageSize) {
+        String key = "track:" + trackName.toLowerCase() + ":" + page;
+        // Version first, a change while rendering just means the next call renders again
+        long version = board.getVersion();
+        Cached cached = pages.get(key);
+        if (cached != null && cached.source() == board && cached.version() == version) {
+            hits++;
+            return cached.page();
+        }
+        misses++;
+
+        int offset = (page - 1) * pageSize;
+        Page rendered = trackPage(board.page(offset, pageSize), offset, board.size(), pageSize);
+        pages.put(key, new Cached(board, version, rendered));
+        return rendered;
+    }
+
+    /**
+     * Renders entries that didn't come from a board in memory, not cached.
+     * @param offset rank of the first entry, 0-based
+     */
+    static Page trackPage(List<TrackRecord> entries, int offset, int total, int pageSize) {
+        List<UUID> owners = new ArrayList<>(entries.size());
+        List<Component> lines = new ArrayList<>(entries.size());
+        List<Component> ownLines = new ArrayList<>(entries.size());
+        for (int i = 0; i < entries.size(); i++) {
+            TrackRecord record = entries.get(i);
+            String time = TrackRecord.formatTime(record.getTimeMs());
+            owners.add(record.getPlayerUUID());
+            lines.add(line(offset + i + 1, record.getPlayerName(), time, false));
+            ownLines.add(line(offset + i + 1, record.getPlayerName(), time, true));
+        }
+        return new Page(Math.max(1, (total + pageSize - 1) / pageSize), total, owners, lines, ownLines);
+    }
+
+    /**
+     * The top of an event's standings.
+     */
+    Page eventPage(RaceEvent event, EventStandings standings, int limit) {
+        String key = "event:" + event.getName().toLowerCase();
+        long version = standings.getVersion();
+        Cached cached = pages.get(key);
+        if (cached != null && cached.source() == standings && cached.version() == version) {
+            hits++;
+            return cached.page();
+        }
+        misses++;
+
+        boolean totalTime = standings.getScoring() == RaceEvent.ScoringType.TOTAL_TIME;
+        List<EventStandings.Standing> top = standings.top(limit);
+        List<UUID> owners = new ArrayList<>(top.size());
+        List<Component> lines = new ArrayList<>(top.size());
+        List<Component> ownLines = new ArrayList<>(top.size());
+        for (int i = 0; i < top.size(); i++) {
+            EventStandings.Standing entry = top.get(i);
+            String score = totalTime ? TrackRecord.formatTime(entry.score()) : entry.score() + " pts";
+            owners.add(entry.uuid());
+            lines.add(line(i + 1, entry.name(), score, false));
+            ownLines.add(line(i + 1, entry.name(), score, true));
+        }
+        Page rendered = new Page(1, standings.playerCount(), owners, lines, ownLines);
+        pages.put(key, new Cached(standings, version, rendered));
+        return rendered;
+    }
+
+    /**
+     * The event's standings once all its leaderboards are in memory and they've been built on
+     * the compute pool. Completes on the global region.
+     */
+    CompletableFuture<EventStandings> loadStandings(RaceEvent event) {
+        EventStandings ready = dataStore.getStandings(event);
+        if (ready != null) return CompletableFuture.completedFuture(ready);
+
+        String key = event.getName().toLowerCase();
+        CompletableFuture<EventStandings> inFlight = building.get(key);
+        if (inFlight != null) return inFlight;
+
+        CompletableFuture<EventStandings> result = new CompletableFuture<>();
+        building.put(key, result);
+        CompletableFuture<?>[] loads = event.getTrackNames().stream().map(dataStore::loadLeaderboard).toArray(CompletableFuture[]::new);
+        CompletableFuture.allOf(loads).whenComplete((ignored, loadError) -> Scheduling.runGlobal(plugin, () -> {
+            if (loadError != null) {
+                building.remove(key);
+                result.completeExceptionally(loadError);
+                return;
+            }
+            dataStore.buildStandings(event).whenComplete((built, error) -> {
+                building.remove(key);
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(built);
+                }
+            });
+        }));
+        return result;
+    }
+
+    int size() {
+        return pages.size();
+    }
+
+    long getHits() {
+        return hits;
+    }
+
+    long getMisses() {
+        return misses;
+    }
+
+    static NamedTextColor rankColor(int rank) {
+        return rank == 1 ? NamedTextColor.GOLD : rank == 2 ? NamedTextColor.GRAY : rank == 3 ? NamedTextColor.DARK_RED : NamedTextColor.WHITE;
+    }
+
+    static Component line(int rank, String name, String score, boolean own) {
+        return Component.text("  #" + rank + " ", rankColor(rank))
+                .append(Component.text(name, own ? NamedTextColor.GREEN : NamedTextColor.WHITE))
+                .append(Component.text(" - " + score, NamedTextColor.AQUA));
+    }
+}
@@ -25,34 +25,66 @@ import dev.jorel.commandapi.arguments.IntegerArgument;
 import dev.jorel.commandapi.arguments.StringArgument;
 import dev.jorel.commandapi.arguments.LongArgument;
 import dev.jorel.commandapi.arguments.BooleanArgument;
+import dev.jorel.commandapi.exceptions.WrapperCommandSyntaxException;
+import dev.jorel.commandapi.executors.CommandExecutor;
+import dev.jorel.commandapi.executors.PlayerCommandExecutor;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
 import net.kyori.adventure.text.format.TextDecoration;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
+import world.ultravanilla.ultrastopwatch.Scheduling;
+import world.ultravanilla.ultrastopwatch.listener.TriggerRegistry;
 import world.ultravanilla.ultrastopwatch.model.RaceEvent;
 import world.ultravanilla.ultrastopwatch.model.Track;
 import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+import world.ultravanilla.ultrastopwatch.model.TrackStats;
+import world.ultravanilla.ultrastopwatch.storage.ComputePool;
 import world.ultravanilla.ultrastopwatch.storage.DataStore;
+import world.ultravanilla.ultrastopwatch.storage.EventStandings;
+import world.ultravanilla.ultrastopwatch.storage.FlushScheduler;
+import world.ultravanilla.ultrastopwatch.storage.NameIndex;
+import world.ultravanilla.ultrastopwatch.storage.RankedLeaderboard;
+import world.ultravanilla.ultrastopwatch.storage.RecordTransfer;
+import world.ultravanilla.ultrastopwatch.storage.RunArchive;
 import world.ultravanilla.ultrastopwatch.timer.TimerManager;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
 
 public class TrackCommand {
 
+    // More than fits in the client's suggestion list anyway
+    private static final int MAX_SUGGESTIONS = 100;
+    private static final int HISTORY_SIZE = 10;
+    private static final DateTimeFormatter HISTORY_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.systemDefault());
+
     private final JavaPlugin plugin;
     private final DataStore dataStore;
     private final TimerManager timerManager;
+    private final TriggerRegistry triggers;
+    private final LeaderboardCache leaderboards;
     private final int leaderboardSize;
-    private final List<Integer> pointsTable;
 
-    public TrackCommand(JavaPlugin plugin, DataStore dataStore, TimerManager timerManager, int leaderboardSize, List<Integer> pointsTable) {
+    public TrackCommand(JavaPlugin plugin, DataStore dataStore, TimerManager timerManager, TriggerRegistry triggers, int leaderboardSize) {
         this.plugin = plugin;
         this.dataStore = dataStore;
         this.timerManager = timerManager;
+        this.triggers = triggers;
+        this.leaderboards = new LeaderboardCache(plugin, dataStore);
         this.leaderboardSize = leaderboardSize;
-        this.pointsTable = pointsTable;
     }
 
     public void register() {
@@ -63,7 +95,7 @@ public class TrackCommand {
                         new CommandAPICommand("create")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(new StringArgument("name"))
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     if (dataStore.getTrack(name) != null) {
                                         player.sendMessage(Component.text("Track '" + name + "' already exists.", NamedTextColor.RED));
@@ -76,22 +108,23 @@ public class TrackCommand {
                                             .append(Component.text(" and ", NamedTextColor.GREEN))
                                             .append(Component.text("/track setend " + name, NamedTextColor.YELLOW))
                                             .append(Component.text(" to configure it.", NamedTextColor.GREEN)));
-                                })
+                                }))
                 )
                 // /track delete <name>
                 .withSubcommand(
                         new CommandAPICommand("delete")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     Track removed = dataStore.removeTrack(name);
                                     if (removed == null) {
                                         player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
                                         return;
                                     }
+                                    timerManager.cancelTrackRuns(removed);
                                     player.sendMessage(Component.text("Track '" + name + "' deleted.", NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track setstart <name>
                 .withSubcommand(
@@ -100,25 +133,29 @@ public class TrackCommand {
                                 .withArguments(trackNameArgument())
                                 .executesPlayer((player, args) -> {
                                     String name = (String) args.get("name");
-                                    Track track = dataStore.getTrack(name);
-                                    if (track == null) {
-                                        player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
-                                        return;
-                                    }
-                                    if (!track.isStartASet() || track.isStartBSet()) {
-                                        track.setStartPoint1(player.getLocation());
-                                        dataStore.saveTracks();
-                                        player.sendMessage(Component.text("Start line point 1 set at " + formatLocation(player.getLocation()) + ". Run ", NamedTextColor.YELLOW)
-                                                .append(Component.text("/track setstart " + name, NamedTextColor.GOLD))
-                                                .append(Component.text(" again to set point 2.", NamedTextColor.YELLOW)));
-                                    } else {
-                                        if (track.setStartPoint2(player.getLocation())) {
+                                    // Where they're standing now, before going over to the global region
+                                    Location here = player.getLocation();
+                                    Scheduling.runGlobal(plugin, () -> {
+                                        Track track = dataStore.getTrack(name);
+                                        if (track == null) {
+                                            player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                            return;
+                                        }
+                                        if (!track.isStartASet() || track.isStartBSet()) {
+                                            track.setStartPoint1(here);
                                             dataStore.saveTracks();
-                                            player.sendMessage(Component.text("Start line established!", NamedTextColor.GREEN));
+                                            player.sendMessage(Component.text("Start line point 1 set at " + formatLocation(here) + ". Run ", NamedTextColor.YELLOW)
+                                                    .append(Component.text("/track setstart " + name, NamedTextColor.GOLD))
+                                                    .append(Component.text(" again to set point 2.", NamedTextColor.YELLOW)));
                                         } else {
-                                            player.sendMessage(Component.text("Invalid point 2. Must be aligned with point 1 (same X or Z) and same Y level.", NamedTextColor.RED));
+                                            if (track.setStartPoint2(here)) {
+                                                dataStore.saveTracks();
+                                                player.sendMessage(Component.text("Start line established!", NamedTextColor.GREEN));
+                                            } else {
+                                                player.sendMessage(Component.text("Invalid point 2. Must be aligned with point 1 (same X or Z) and same Y level.", NamedTextColor.RED));
+                                            }
                                         }
-                                    }
+                                    });
                                 })
                 )
                 // /track setend <name>
@@ -128,23 +165,27 @@ public class TrackCommand {
                                 .withArguments(trackNameArgument())
                                 .executesPlayer((player, args) -> {
                                     String name = (String) args.get("name");
-                                    Track track = dataStore.getTrack(name);
-                                    if (track == null) {
-                                        player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
-                                        return;
-                                    }
-                                    if (!track.isEndASet() || track.isEndBSet()) {
-                                        track.setEndPoint1(player.getLocation());
-                                        dataStore.saveTracks();
-                                        player.sendMessage(Component.text("Finish line point 1 set. Set point 2 to complete the line.", NamedTextColor.YELLOW));
-                                    } else {
-                                        if (track.setEndPoint2(player.getLocation())) {
+                                    // Where they're standing now, before going over to the global region
+                                    Location here = player.getLocation();
+                                    Scheduling.runGlobal(plugin, () -> {
+                                        Track track = dataStore.getTrack(name);
+                                        if (track == null) {
+                                            player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                            return;
+                                        }
+                                        if (!track.isEndASet() || track.isEndBSet()) {
+                                            track.setEndPoint1(here);
                                             dataStore.saveTracks();
-                                            player.sendMessage(Component.text("Finish line established!", NamedTextColor.GREEN));
+                                            player.sendMessage(Component.text("Finish line point 1 set. Set point 2 to complete the line.", NamedTextColor.YELLOW));
                                         } else {
-                                            player.sendMessage(Component.text("Invalid point 2. Must be aligned with point 1 (same X or Z) and same Y level.", NamedTextColor.RED));
+                                            if (track.setEndPoint2(here)) {
+                                                dataStore.saveTracks();
+                                                player.sendMessage(Component.text("Finish line established!", NamedTextColor.GREEN));
+                                            } else {
+                                                player.sendMessage(Component.text("Invalid point 2. Must be aligned with point 1 (same X or Z) and same Y level.", NamedTextColor.RED));
+                                            }
                                         }
-                                    }
+                                    });
                                 })
                 )
                 // /track settrigger <name> <type>
@@ -152,8 +193,9 @@ public class TrackCommand {
                         new CommandAPICommand("settrigger")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
-                                .withArguments(new MultiLiteralArgument("type", "pressure_plate", "tripwire"))
-                                .executesPlayer((player, args) -> {
+                                .withArguments(new StringArgument("type").replaceSuggestions(
+                                        ArgumentSuggestions.strings(info -> triggers.names().toArray(new String[0]))))
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     String type = (String) args.get("type");
                                     Track track = dataStore.getTrack(name);
@@ -161,11 +203,33 @@ public class TrackCommand {
                                         player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
                                         return;
                                     }
-                                    Track.TriggerType triggerType = Track.TriggerType.valueOf(type.toUpperCase());
-                                    track.setTriggerType(triggerType);
+                                    if (!triggers.has(type)) {
+                                        player.sendMessage(Component.text("Unknown trigger set '" + type + "'. Sets: " + String.join(", ", triggers.names()), NamedTextColor.RED));
+                                        return;
+                                    }
+                                    track.setTriggerType(type);
                                     dataStore.saveTracks();
                                     player.sendMessage(Component.text("Trigger type set to '" + type + "' for track '" + name + "'.", NamedTextColor.GREEN));
-                                })
+                                }))
+                )
+                // /track setclock <name> <mode>
+                .withSubcommand(
+                        new CommandAPICommand("setclock")
+                                .withPermission("ultrastopwatch.admin")
+                                .withArguments(trackNameArgument())
+                                .withArguments(new MultiLiteralArgument("mode", "wall", "tick"))
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
+                                    String name = (String) args.get("name");
+                                    String mode = (String) args.get("mode");
+                                    Track track = dataStore.getTrack(name);
+                                    if (track == null) {
+                                        player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    track.setClock(Track.ClockMode.valueOf(mode.toUpperCase()));
+                                    dataStore.saveTracks();
+                                    player.sendMessage(Component.text("Clock set to '" + mode + "' for track '" + name + "'.", NamedTextColor.GREEN));
+                                }))
                 )
                 // /track setdelay <name> <seconds>
                 .withSubcommand(
@@ -173,7 +237,7 @@ public class TrackCommand {
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
                                 .withArguments(new LongArgument("seconds"))
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     long seconds = (long) args.get("seconds");
                                     Track track = dataStore.getTrack(name);
@@ -184,7 +248,7 @@ public class TrackCommand {
                                     track.setTriggerDelay(seconds * 1000);
                                     dataStore.saveTracks();
                                     player.sendMessage(Component.text("Trigger delay for track '" + name + "' set to " + seconds + "s.", NamedTextColor.GREEN));
-                                })
+                                }))
                 )
                 // /track setlaps <name> <amount>
                 .withSubcommand(
@@ -192,7 +256,7 @@ public class TrackCommand {
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
                                 .withArguments(new IntegerArgument("amount", 1))
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     int laps = (int) args.get("amount");
                                     Track track = dataStore.getTrack(name);
@@ -203,7 +267,7 @@ public class TrackCommand {
                                     track.setLaps(laps);
                                     dataStore.saveTracks();
                                     player.sendMessage(Component.text("Laps for track '" + name + "' set to " + laps + ".", NamedTextColor.GREEN));
-                                })
+                                }))
                 )
                 // /track setleaderboard <name> <enabled>
                 .withSubcommand(
@@ -211,7 +275,7 @@ public class TrackCommand {
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
                                 .withArguments(new BooleanArgument("enabled"))
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     boolean enabled = (boolean) args.get("enabled");
                                     Track track = dataStore.getTrack(name);
@@ -223,14 +287,14 @@ public class TrackCommand {
                                     dataStore.saveTracks();
                                     String status = enabled ? "enabled" : "disabled";
                                     player.sendMessage(Component.text("Leaderboard for track '" + name + "' " + status + ".", enabled ? NamedTextColor.GREEN : NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track toggleleaderboard <name>
                 .withSubcommand(
                         new CommandAPICommand("toggleleaderboard")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     Track track = dataStore.getTrack(name);
                                     if (track == null) {
@@ -242,12 +306,12 @@ public class TrackCommand {
                                     dataStore.saveTracks();
                                     String status = newState ? "enabled" : "disabled";
                                     player.sendMessage(Component.text("Leaderboard for track '" + name + "' is now " + status + ".", newState ? NamedTextColor.GREEN : NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track list
                 .withSubcommand(
                         new CommandAPICommand("list")
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     var tracks = dataStore.getTracks();
                                     if (tracks.isEmpty()) {
                                         sender.sendMessage(Component.text("No tracks defined.", NamedTextColor.GRAY));
@@ -259,15 +323,15 @@ public class TrackCommand {
                                         NamedTextColor statusColor = track.isFullyConfigured() ? NamedTextColor.GREEN : NamedTextColor.YELLOW;
                                         sender.sendMessage(Component.text("  " + track.getName(), NamedTextColor.WHITE)
                                                 .append(Component.text(" [" + status + "]", statusColor))
-                                                .append(Component.text(" - " + track.getTriggerType().name().toLowerCase(), NamedTextColor.GRAY)));
+                                                .append(Component.text(" - " + track.getTriggerType(), NamedTextColor.GRAY)));
                                     }
-                                })
+                                }))
                 )
                 // /track info <name>
                 .withSubcommand(
                         new CommandAPICommand("info")
                                 .withArguments(trackNameArgument())
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     String name = (String) args.get("name");
                                     Track track = dataStore.getTrack(name);
                                     if (track == null) {
@@ -286,32 +350,75 @@ public class TrackCommand {
                                     sender.sendMessage(Component.text("  World: ", NamedTextColor.GRAY).append(Component.text(track.getWorld() != null ? track.getWorld() : "Not set", NamedTextColor.WHITE)));
                                     sender.sendMessage(Component.text("  Start: ", NamedTextColor.GRAY).append(Component.text(startStr, NamedTextColor.WHITE)));
                                     sender.sendMessage(Component.text("  End: ", NamedTextColor.GRAY).append(Component.text(endStr, NamedTextColor.WHITE)));
-                                    sender.sendMessage(Component.text("  Trigger: ", NamedTextColor.GRAY).append(Component.text(track.getTriggerType().name().toLowerCase(), NamedTextColor.WHITE)));
+                                    sender.sendMessage(Component.text("  Trigger: ", NamedTextColor.GRAY).append(Component.text(track.getTriggerType(), NamedTextColor.WHITE)));
                                     sender.sendMessage(Component.text("  Trigger Delay: ", NamedTextColor.GRAY).append(Component.text((track.getTriggerDelay() / 1000) + "s", NamedTextColor.WHITE)));
                                     sender.sendMessage(Component.text("  Laps: ", NamedTextColor.GRAY).append(Component.text(track.getLaps(), NamedTextColor.WHITE)));
+                                    sender.sendMessage(Component.text("  Clock: ", NamedTextColor.GRAY).append(Component.text(track.getClock().name().toLowerCase(), NamedTextColor.WHITE)));
                                     sender.sendMessage(Component.text("  Leaderboard: ", NamedTextColor.GRAY).append(Component.text(track.isLeaderboardEnabled() ? "Enabled" : "Disabled", track.isLeaderboardEnabled() ? NamedTextColor.GREEN : NamedTextColor.RED)));
-                                })
+                                }))
                 )
-                // /track leaderboard <name>
+                // /track leaderboard <name> [page]
                 .withSubcommand(
                         new CommandAPICommand("leaderboard")
                                 .withArguments(trackNameArgument())
-                                .executes((sender, args) -> {
+                                .withOptionalArguments(new IntegerArgument("page", 1))
+                                .executes(onGlobal((sender, args) -> {
                                     String name = (String) args.get("name");
+                                    int page = (int) args.getOrDefault("page", 1);
                                     Track track = dataStore.getTrack(name);
                                     if (track == null) {
                                         sender.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
                                         return;
                                     }
-                                    showTrackLeaderboard(sender, name);
-                                })
+                                    if (dataStore.isQueryable(name)) {
+                                        queryTrackLeaderboard(sender, name, page);
+                                    } else {
+                                        whenLeaderboardReady(sender, name, () -> showTrackLeaderboard(sender, name, page));
+                                    }
+                                }))
+                )
+                // /track rank <name> [player]
+                .withSubcommand(
+                        new CommandAPICommand("rank")
+                                .withArguments(trackNameArgument())
+                                .withOptionalArguments(playerNameArgument())
+                                .executes(onGlobal((sender, args) -> {
+                                    String name = (String) args.get("name");
+                                    String playerName = (String) args.get("player");
+                                    if (dataStore.getTrack(name) == null) {
+                                        sender.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    if (playerName == null && !(sender instanceof Player)) {
+                                        sender.sendMessage(Component.text("Usage: /track rank <track> <player>", NamedTextColor.YELLOW));
+                                        return;
+                                    }
+                                    if (dataStore.isQueryable(name)) {
+                                        queryRank(sender, name, playerName);
+                                    } else {
+                                        whenLeaderboardReady(sender, name, () -> showRank(sender, name, playerName));
+                                    }
+                                }))
+                )
+                // /track around <name>
+                .withSubcommand(
+                        new CommandAPICommand("around")
+                                .withArguments(trackNameArgument())
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
+                                    String name = (String) args.get("name");
+                                    if (dataStore.getTrack(name) == null) {
+                                        player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    whenLeaderboardReady(player, name, () -> showAround(player, name));
+                                }))
                 )
                 // /track resetleaderboard <name>
                 .withSubcommand(
                         new CommandAPICommand("resetleaderboard")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     if (dataStore.getTrack(name) == null) {
                                         player.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
@@ -319,28 +426,173 @@ public class TrackCommand {
                                     }
                                     dataStore.resetTrackLeaderboard(name);
                                     player.sendMessage(Component.text("Leaderboard for track '" + name + "' has been reset.", NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track deleteplayer <name> <player>
                 .withSubcommand(
                         new CommandAPICommand("deleteplayer")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(trackNameArgument())
-                                .withArguments(new StringArgument("player"))
-                                .executesPlayer((player, args) -> {
+                                .withArguments(playerNameArgument())
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String trackName = (String) args.get("name");
                                     String playerName = (String) args.get("player");
                                     if (dataStore.getTrack(trackName) == null) {
                                         player.sendMessage(Component.text("Track '" + trackName + "' not found.", NamedTextColor.RED));
                                         return;
                                     }
-                                    if (dataStore.deletePlayerRecord(trackName, playerName)) {
-                                        player.sendMessage(Component.text("Removed " + playerName + " from track '" + trackName + "' leaderboard.", NamedTextColor.GREEN));
-                                    } else {
-                                        player.sendMessage(Component.text("Player '" + playerName + "' not found on leaderboard for track '" + trackName + "'.", NamedTextColor.RED));
-                                    }
+                                    whenLeaderboardReady(player, trackName, () -> {
+                                        if (dataStore.deletePlayerRecord(trackName, playerName)) {
+                                            player.sendMessage(Component.text("Removed " + playerName + " from track '" + trackName + "' leaderboard.", NamedTextColor.GREEN));
+                                        } else {
+                                            player.sendMessage(Component.text("Player '" + playerName + "' not found on leaderboard for track '" + trackName + "'.", NamedTextColor.RED));
+                                        }
+                                    });
+                                }))
+                )
+                // /track purgeplayer <player>
+                .withSubcommand(
+                        new CommandAPICommand("purgeplayer")
+                                .withPermission("ultrastopwatch.admin")
+                                .withArguments(playerNameArgument())
+                                .executes((sender, args) -> {
+                                    String playerName = (String) args.get("player");
+                                    sender.sendMessage(Component.text("Removing " + playerName + " from every leaderboard...", NamedTextColor.GRAY));
+                                    dataStore.purgePlayer(playerName).whenComplete((affected, error) -> {
+                                        if (error != null) {
+                                            sender.sendMessage(Component.text("Couldn't load the leaderboards " + playerName + " is on, nothing was removed.", NamedTextColor.RED));
+                                        } else if (affected.isEmpty()) {
+                                            sender.sendMessage(Component.text("Player '" + playerName + "' isn't on any leaderboard.", NamedTextColor.RED));
+                                        } else {
+                                            sender.sendMessage(Component.text("Removed " + playerName + " from " + affected.size() + " leaderboard(s): " + String.join(", ", affected), NamedTextColor.GREEN));
+                                        }
+                                    });
+                                })
+                )
+                // /track placements <player>
+                .withSubcommand(
+                        new CommandAPICommand("placements")
+                                .withArguments(playerNameArgument())
+                                .executes((sender, args) -> {
+                                    String playerName = (String) args.get("player");
+                                    dataStore.findPlacements(playerName).whenComplete((placements, error) -> {
+                                        if (isBusy(error)) {
+                                            sendBusy(sender);
+                                        } else if (error != null) {
+                                            sender.sendMessage(Component.text("Couldn't load the leaderboards " + playerName + " is on.", NamedTextColor.RED));
+                                        } else {
+                                            showPlacements(sender, playerName, placements);
+                                        }
+                                    });
                                 })
                 )
+                // /track stats <name>
+                .withSubcommand(
+                        new CommandAPICommand("stats")
+                                .withArguments(trackNameArgument())
+                                .executes(onGlobal((sender, args) -> {
+                                    String name = (String) args.get("name");
+                                    Track track = dataStore.getTrack(name);
+                                    if (track == null) {
+                                        sender.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    showStats(sender, track);
+                                }))
+                )
+                // /track history <name> [player]
+                .withSubcommand(
+                        new CommandAPICommand("history")
+                                .withArguments(trackNameArgument())
+                                .withOptionalArguments(playerNameArgument())
+                                .executes(onGlobal((sender, args) -> {
+                                    String name = (String) args.get("name");
+                                    String playerName = (String) args.get("player");
+                                    if (dataStore.getTrack(name) == null) {
+                                        sender.sendMessage(Component.text("Track '" + name + "' not found.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    if (dataStore.getHistory() == null) {
+                                        sender.sendMessage(Component.text("Run history is turned off.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    if (playerName == null && !(sender instanceof Player)) {
+                                        sender.sendMessage(Component.text("Usage: /track history <track> <player>", NamedTextColor.YELLOW));
+                                        return;
+                                    }
+                                    Player online = playerName == null ? (Player) sender : Bukkit.getPlayerExact(playerName);
+                                    UUID uuid = online != null ? online.getUniqueId() : dataStore.findPlayer(playerName);
+                                    String who = online != null ? online.getName() : playerName;
+                                    if (uuid == null) {
+                                        sender.sendMessage(Component.text("Don't know a player called '" + playerName + "'.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    dataStore.recentRuns(name, uuid, HISTORY_SIZE).whenComplete((runs, error) -> {
+                                        if (isBusy(error)) {
+                                            sendBusy(sender);
+                                        } else if (error != null) {
+                                            sender.sendMessage(Component.text("Couldn't read the run history: " + rootMessage(error), NamedTextColor.RED));
+                                        } else {
+                                            showHistory(sender, name, who, runs);
+                                        }
+                                    });
+                                }))
+                )
+                // /track export <csv|ndjson> [track]
+                .withSubcommand(
+                        new CommandAPICommand("export")
+                                .withPermission("ultrastopwatch.admin")
+                                .withArguments(new MultiLiteralArgument("format", "csv", "ndjson"))
+                                .withOptionalArguments(trackNameArgument())
+                                .executes(onGlobal((sender, args) -> {
+                                    String trackName = (String) args.get("name");
+                                    RecordTransfer.Format format = RecordTransfer.Format.valueOf(((String) args.get("format")).toUpperCase());
+                                    if (trackName != null && dataStore.getTrack(trackName) == null) {
+                                        sender.sendMessage(Component.text("Track '" + trackName + "' not found.", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    sender.sendMessage(Component.text("Exporting " + (trackName == null ? "every leaderboard" : "'" + trackName + "'") + "...", NamedTextColor.GRAY));
+                                    dataStore.exportRecords(trackName, format).whenComplete((exported, error) -> {
+                                        if (error != null) {
+                                            sender.sendMessage(Component.text("Export failed: " + rootMessage(error), NamedTextColor.RED));
+                                        } else {
+                                            sender.sendMessage(Component.text("Exported " + exported.records() + " record(s) to " + plugin.getDataFolder().toPath().relativize(exported.file()), NamedTextColor.GREEN));
+                                        }
+                                    });
+                                }))
+                )
+                // /track import <file>
+                .withSubcommand(
+                        new CommandAPICommand("import")
+                                .withPermission("ultrastopwatch.admin")
+                                .withArguments(new StringArgument("file").replaceSuggestions(ArgumentSuggestions.stringsAsync(info -> CompletableFuture.supplyAsync(this::listImportFiles))))
+                                .executes(onGlobal((sender, args) -> {
+                                    String fileName = (String) args.get("file");
+                                    Path dir = dataStore.getImportDir();
+                                    Path file = dir.resolve(fileName).normalize();
+                                    if (!file.startsWith(dir) || !Files.isRegularFile(file)) {
+                                        sender.sendMessage(Component.text("No file '" + fileName + "' in " + plugin.getDataFolder().toPath().relativize(dir) + ".", NamedTextColor.RED));
+                                        return;
+                                    }
+                                    sender.sendMessage(Component.text("Importing " + fileName + "...", NamedTextColor.GRAY));
+                                    dataStore.importRecords(file).whenComplete((imported, error) -> {
+                                        if (error != null) {
+                                            sender.sendMessage(Component.text("Import failed: " + rootMessage(error), NamedTextColor.RED));
+                                        } else {
+                                            sender.sendMessage(Component.text("Read " + imported.read() + " record(s), " + imported.merged() + " new or faster, "
+                                                    + imported.skipped() + " skipped (unreadable or unknown track).", NamedTextColor.GREEN));
+                                        }
+                                    });
+                                }))
+                )
+                // /track storage
+                .withSubcommand(
+                        new CommandAPICommand("storage")
+                                .withPermission("ultrastopwatch.admin")
+                                .executes(onGlobal((sender, args) -> {
+                                    showStorageStatus(sender);
+                                }))
+                )
                 // /track run <name>
                 .withSubcommand(
                         new CommandAPICommand("run")
@@ -356,7 +608,7 @@ public class TrackCommand {
                                         player.sendMessage(Component.text("Track '" + name + "' is not fully configured yet.", NamedTextColor.RED));
                                         return;
                                     }
-                                    timerManager.startTrackRun(player, name.toLowerCase());
+                                    timerManager.startTrackRun(player, track);
                                 })
                 )
                 // /track submit
@@ -369,11 +621,32 @@ public class TrackCommand {
                 // /track event subcommands
                 .withSubcommand(buildEventSubcommands())
                 .executes((sender, args) -> {
-                    sender.sendMessage(Component.text("Usage: /track <create|delete|setstart|setend|settrigger|setdelay|setlaps|setleaderboard|toggleleaderboard|resetleaderboard|list|info|leaderboard|run|submit|event>", NamedTextColor.YELLOW));
+                    sender.sendMessage(Component.text("Usage: /track <create|delete|setstart|setend|settrigger|setclock|setdelay|setlaps|setleaderboard|toggleleaderboard|resetleaderboard|deleteplayer|purgeplayer|export|import|list|info|leaderboard|rank|around|placements|stats|history|storage|run|submit|event>", NamedTextColor.YELLOW));
                 })
                 .register();
     }
 
+    // Commands run on the sender's region on Folia, DataStore lives on the global one
+    private PlayerCommandExecutor onGlobalPlayer(PlayerCommandExecutor executor) {
+        return (player, args) -> Scheduling.runGlobal(plugin, () -> {
+            try {
+                executor.run(player, args);
+            } catch (WrapperCommandSyntaxException e) {
+                player.sendMessage(Component.text(String.valueOf(e.getMessage()), NamedTextColor.RED));
+            }
+        });
+    }
+
+    private CommandExecutor onGlobal(CommandExecutor executor) {
+        return (sender, args) -> Scheduling.runGlobal(plugin, () -> {
+            try {
+                executor.run(sender, args);
+            } catch (WrapperCommandSyntaxException e) {
+                sender.sendMessage(Component.text(String.valueOf(e.getMessage()), NamedTextColor.RED));
+            }
+        });
+    }
+
     private CommandAPICommand buildEventSubcommands() {
         return new CommandAPICommand("event")
                 // /track event create <name> <scoring>
@@ -382,7 +655,7 @@ public class TrackCommand {
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(new StringArgument("name"))
                                 .withArguments(new MultiLiteralArgument("scoring", "total_time", "points"))
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     String scoring = (String) args.get("scoring");
                                     if (dataStore.getEvent(name) != null) {
@@ -393,14 +666,14 @@ public class TrackCommand {
                                     RaceEvent event = new RaceEvent(name.toLowerCase(), scoringType);
                                     dataStore.addEvent(event);
                                     player.sendMessage(Component.text("Event '" + name + "' created with scoring: " + scoring, NamedTextColor.GREEN));
-                                })
+                                }))
                 )
                 // /track event delete <name>
                 .withSubcommand(
                         new CommandAPICommand("delete")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(eventNameArgument())
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String name = (String) args.get("name");
                                     RaceEvent removed = dataStore.removeEvent(name);
                                     if (removed == null) {
@@ -411,16 +684,15 @@ public class TrackCommand {
                                         dataStore.resetTrackLeaderboard(trackName);
                                     }
                                     player.sendMessage(Component.text("Event '" + name + "' deleted and associated track leaderboards purged.", NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track event addtrack <event> <track>
                 .withSubcommand(
                         new CommandAPICommand("addtrack")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(eventNameArgument())
-                                .withArguments(new StringArgument("track").replaceSuggestions(
-                                        ArgumentSuggestions.strings(info -> dataStore.getTracks().keySet().toArray(new String[0]))))
-                                .executesPlayer((player, args) -> {
+                                .withArguments(new StringArgument("track").replaceSuggestions(suggest(dataStore.getTrackNames())))
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String eventName = (String) args.get("name");
                                     String trackName = (String) args.get("track");
                                     RaceEvent event = dataStore.getEvent(eventName);
@@ -433,9 +705,10 @@ public class TrackCommand {
                                         return;
                                     }
                                     event.addTrack(trackName.toLowerCase());
+                                    dataStore.invalidateStandings(event);
                                     dataStore.saveEvents();
                                     player.sendMessage(Component.text("Added track '" + trackName + "' to event '" + eventName + "'.", NamedTextColor.GREEN));
-                                })
+                                }))
                 )
                 // /track event removetrack <event> <track>
                 .withSubcommand(
@@ -449,7 +722,7 @@ public class TrackCommand {
                                             if (event == null) return new String[0];
                                             return event.getTrackNames().toArray(new String[0]);
                                         })))
-                                .executesPlayer((player, args) -> {
+                                .executesPlayer(onGlobalPlayer((player, args) -> {
                                     String eventName = (String) args.get("name");
                                     String trackName = (String) args.get("track");
                                     RaceEvent event = dataStore.getEvent(eventName);
@@ -461,16 +734,17 @@ public class TrackCommand {
                                         player.sendMessage(Component.text("Track '" + trackName + "' is not in event '" + eventName + "'.", NamedTextColor.RED));
                                         return;
                                     }
+                                    dataStore.invalidateStandings(event);
                                     dataStore.saveEvents();
                                     player.sendMessage(Component.text("Removed track '" + trackName + "' from event '" + eventName + "'.", NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track event start <name>
                 .withSubcommand(
                         new CommandAPICommand("start")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(eventNameArgument())
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     String name = (String) args.get("name");
                                     RaceEvent event = dataStore.getEvent(name);
                                     if (event == null) {
@@ -492,14 +766,14 @@ public class TrackCommand {
                                     dataStore.saveTracks();
                                     dataStore.saveEvents();
                                     sender.sendMessage(Component.text("Event '" + name + "' is now active! Track leaderboards reset and enabled.", NamedTextColor.GREEN));
-                                })
+                                }))
                 )
                 // /track event stop <name>
                 .withSubcommand(
                         new CommandAPICommand("stop")
                                 .withPermission("ultrastopwatch.admin")
                                 .withArguments(eventNameArgument())
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     String name = (String) args.get("name");
                                     RaceEvent event = dataStore.getEvent(name);
                                     if (event == null) {
@@ -516,13 +790,13 @@ public class TrackCommand {
                                     dataStore.saveTracks();
                                     dataStore.saveEvents();
                                     sender.sendMessage(Component.text("Event '" + name + "' has been stopped. Track leaderboards disabled.", NamedTextColor.YELLOW));
-                                })
+                                }))
                 )
                 // /track event info <name>
                 .withSubcommand(
                         new CommandAPICommand("info")
                                 .withArguments(eventNameArgument())
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     String name = (String) args.get("name");
                                     RaceEvent event = dataStore.getEvent(name);
                                     if (event == null) {
@@ -533,12 +807,12 @@ public class TrackCommand {
                                     sender.sendMessage(Component.text("  Status: ", NamedTextColor.GRAY).append(Component.text(event.isActive() ? "Active" : "Inactive", event.isActive() ? NamedTextColor.GREEN : NamedTextColor.RED)));
                                     sender.sendMessage(Component.text("  Scoring: ", NamedTextColor.GRAY).append(Component.text(event.getScoringType().name(), NamedTextColor.WHITE)));
                                     sender.sendMessage(Component.text("  Tracks: ", NamedTextColor.GRAY).append(Component.text(String.join(", ", event.getTrackNames()), NamedTextColor.WHITE)));
-                                })
+                                }))
                 )
                 // /track event list
                 .withSubcommand(
                         new CommandAPICommand("list")
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     var events = dataStore.getEvents();
                                     if (events.isEmpty()) {
                                         sender.sendMessage(Component.text("No events defined.", NamedTextColor.GRAY));
@@ -552,13 +826,13 @@ public class TrackCommand {
                                                 .append(Component.text(" [" + status + "]", statusColor))
                                                 .append(Component.text(" - " + event.getScoringType().name().toLowerCase() + " (" + event.getTrackNames().size() + " tracks)", NamedTextColor.GRAY)));
                                     }
-                                })
+                                }))
                 )
                 // /track event leaderboard <name>
                 .withSubcommand(
                         new CommandAPICommand("leaderboard")
                                 .withArguments(eventNameArgument())
-                                .executes((sender, args) -> {
+                                .executes(onGlobal((sender, args) -> {
                                     String name = (String) args.get("name");
                                     RaceEvent event = dataStore.getEvent(name);
                                     if (event == null) {
@@ -566,179 +840,322 @@ public class TrackCommand {
                                         return;
                                     }
                                     showEventLeaderboard(sender, event);
-                                })
+                                }))
                 )
                 .executes((sender, args) -> {
                     sender.sendMessage(Component.text("Usage: /track event <create|delete|addtrack|removetrack|start|stop|list|info|leaderboard>", NamedTextColor.YELLOW));
                 });
     }
 
-    private void showTrackLeaderboard(CommandSender sender, String trackName) {
-        sender.sendMessage(Component.text("Calculating leaderboard...", NamedTextColor.GRAY));
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            List<TrackRecord> records = dataStore.getRecords(trackName);
-            // Get best time per player, sorted
-            Map<UUID, TrackRecord> bestPerPlayer = new LinkedHashMap<>();
-            synchronized (records) {
-                if (records.isEmpty()) {
-                    plugin.getServer().getScheduler().runTask(plugin, () ->
-                        sender.sendMessage(Component.text("No records for track '" + trackName + "'.", NamedTextColor.GRAY))
-                    );
-                    return;
-                }
-                for (TrackRecord record : records) {
-                    bestPerPlayer.merge(record.getPlayerUUID(), record, (a, b) -> a.getTimeMs() <= b.getTimeMs() ? a : b);
-                }
+    // Runs the action on the global region once the track's leaderboard is in memory
+    private void whenLeaderboardReady(CommandSender sender, String trackName, Runnable action) {
+        RankedLeaderboard board = dataStore.getLeaderboard(trackName);
+        if (board.isReady()) {
+            action.run();
+            return;
+        }
+        sender.sendMessage(Component.text("Loading leaderboard...", NamedTextColor.GRAY));
+        board.whenLoaded().whenComplete((loaded, error) -> Scheduling.runGlobal(plugin, () -> {
+            if (error != null) {
+                sender.sendMessage(Component.text("Failed to load leaderboard for track '" + trackName + "'.", NamedTextColor.RED));
+                return;
             }
-            List<TrackRecord> sorted = bestPerPlayer.values().stream()
-                    .sorted()
-                    .limit(leaderboardSize)
-                    .collect(Collectors.toList());
-
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                sender.sendMessage(Component.text("=== Leaderboard: " + trackName + " ===", NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
-                for (int i = 0; i < sorted.size(); i++) {
-                    TrackRecord record = sorted.get(i);
-                    NamedTextColor color = i == 0 ? NamedTextColor.GOLD : i == 1 ? NamedTextColor.GRAY : i == 2 ? NamedTextColor.DARK_RED : NamedTextColor.WHITE;
-                    sender.sendMessage(Component.text("  #" + (i + 1) + " ", color)
-                            .append(Component.text(record.getPlayerName(), NamedTextColor.WHITE))
-                            .append(Component.text(" - " + TrackRecord.formatTime(record.getTimeMs()), NamedTextColor.AQUA)));
-                }
-            });
-        });
+            action.run();
+        }));
     }
 
-    private void showEventLeaderboard(CommandSender sender, RaceEvent event) {
-        List<String> trackNames = new ArrayList<>(event.getTrackNames());
-        if (trackNames.isEmpty()) {
-            sender.sendMessage(Component.text("Event '" + event.getName() + "' has no tracks.", NamedTextColor.GRAY));
+    // Pages come straight out of the ranked index, so any page costs about the same as the first,
+    // and stay rendered until the board changes
+    private void showTrackLeaderboard(CommandSender sender, String trackName, int page) {
+        sendTrackPage(sender, trackName, page, leaderboards.trackPage(trackName, dataStore.getLeaderboard(trackName), page, leaderboardSize));
+    }
+
+    // Board isn't in memory, the page comes from the backend's index instead of loading all of it
+    private void queryTrackLeaderboard(CommandSender sender, String trackName, int page) {
+        int offset = (page - 1) * leaderboardSize;
+        dataStore.queryPage(trackName, offset, leaderboardSize).whenComplete((found, error) -> Scheduling.runGlobal(plugin, () -> {
+            if (error != null) {
+                sender.sendMessage(Component.text("Failed to load leaderboard for track '" + trackName + "'.", NamedTextColor.RED));
+                return;
+            }
+            sendTrackPage(sender, trackName, page, LeaderboardCache.trackPage(found.entries(), offset, found.total(), leaderboardSize));
+        }));
+    }
+
+    private void sendTrackPage(CommandSender sender, String trackName, int page, LeaderboardCache.Page rendered) {
+        if (rendered.total() == 0) {
+            sender.sendMessage(Component.text("No records for track '" + trackName + "'.", NamedTextColor.GRAY));
+            return;
+        }
+        int pages = rendered.pages();
+        if (page > pages) {
+            sender.sendMessage(Component.text("Track '" + trackName + "' only has " + pages + (pages == 1 ? " page." : " pages."), NamedTextColor.RED));
             return;
         }
 
-        sender.sendMessage(Component.text("Calculating leaderboard...", NamedTextColor.GRAY));
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            // Gather all players who have records on any track in the event
-            Set<UUID> allPlayers = new HashSet<>();
-            Map<UUID, String> playerNames = new HashMap<>();
-            Map<String, Map<UUID, Long>> bestTimesPerTrack = new HashMap<>();
-
-            for (String trackName : trackNames) {
-                List<TrackRecord> records = dataStore.getRecords(trackName);
-                Map<UUID, Long> bestTimes = new HashMap<>();
-                synchronized (records) {
-                    for (TrackRecord record : records) {
-                        allPlayers.add(record.getPlayerUUID());
-                        playerNames.put(record.getPlayerUUID(), record.getPlayerName());
-                        bestTimes.merge(record.getPlayerUUID(), record.getTimeMs(), Math::min);
+        String header = pages == 1 ? "=== Leaderboard: " + trackName + " ===" : "=== Leaderboard: " + trackName + " (" + page + "/" + pages + ") ===";
+        sender.sendMessage(Component.text(header, NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
+        UUID self = sender instanceof Player player ? player.getUniqueId() : null;
+        for (int i = 0; i < rendered.lines().size(); i++) {
+            sender.sendMessage(rendered.line(i, self));
+        }
+        if (page < pages) {
+            String next = "/track leaderboard " + trackName + " " + (page + 1);
+            sender.sendMessage(Component.text("  Next page: ", NamedTextColor.GRAY)
+                    .append(Component.text(next, NamedTextColor.YELLOW).clickEvent(ClickEvent.runCommand(next))));
+        }
+    }
+
+    private void showRank(CommandSender sender, String trackName, String playerName) {
+        RankedLeaderboard board = dataStore.getLeaderboard(trackName);
+        Player online = playerName == null ? (Player) sender : Bukkit.getPlayerExact(playerName);
+        if (online != null) {
+            showRank(sender, trackName, playerName, board, board.get(online.getUniqueId()));
+            return;
+        }
+        // Offline players mean looking through the whole board, not on the global region
+        dataStore.getComputePool().submit(ComputePool.Priority.INTERACTIVE, () -> board.findByName(playerName))
+                .whenComplete((record, error) -> Scheduling.runGlobal(plugin, () -> {
+                    if (isBusy(error)) {
+                        sendBusy(sender);
+                    } else if (error != null) {
+                        sender.sendMessage(Component.text("Couldn't look up " + playerName + ".", NamedTextColor.RED));
+                    } else {
+                        showRank(sender, trackName, playerName, board, record);
                     }
-                }
-                bestTimesPerTrack.put(trackName, bestTimes);
-            }
+                }));
+    }
 
-            if (allPlayers.isEmpty()) {
-                plugin.getServer().getScheduler().runTask(plugin, () ->
-                    sender.sendMessage(Component.text("No records for any tracks in event '" + event.getName() + "'.", NamedTextColor.GRAY))
-                );
+    // Same as above from the backend's index, for a board that isn't in memory
+    private void queryRank(CommandSender sender, String trackName, String playerName) {
+        Player online = playerName == null ? (Player) sender : Bukkit.getPlayerExact(playerName);
+        UUID uuid = online != null ? online.getUniqueId() : dataStore.findPlayer(playerName);
+        if (uuid == null) {
+            // Nobody (or several people) by that name in the index, only the whole board can tell
+            whenLeaderboardReady(sender, trackName, () -> showRank(sender, trackName, playerName));
+            return;
+        }
+        dataStore.queryRank(trackName, uuid).whenComplete((found, error) -> Scheduling.runGlobal(plugin, () -> {
+            if (error != null) {
+                sender.sendMessage(Component.text("Couldn't look up " + (playerName == null ? "your rank" : playerName) + ".", NamedTextColor.RED));
                 return;
             }
+            showRank(sender, trackName, playerName, found.record(), found.rank(), found.total(), found.ahead());
+        }));
+    }
 
-            if (event.getScoringType() == RaceEvent.ScoringType.TOTAL_TIME) {
-                showTotalTimeLeaderboard(sender, event, allPlayers, playerNames, bestTimesPerTrack, trackNames);
-            } else {
-                showPointsLeaderboard(sender, event, allPlayers, playerNames, bestTimesPerTrack, trackNames);
-            }
-        });
+    private void showRank(CommandSender sender, String trackName, String playerName, RankedLeaderboard board, TrackRecord record) {
+        int rank = record == null ? -1 : board.rankOf(record.getPlayerUUID());
+        List<TrackRecord> ahead = rank > 1 ? board.page(rank - 2, 1) : List.of();
+        showRank(sender, trackName, playerName, record, rank, board.size(), ahead.isEmpty() ? null : ahead.get(0));
     }
 
-    private void showTotalTimeLeaderboard(CommandSender sender, RaceEvent event,
-                                           Set<UUID> allPlayers, Map<UUID, String> playerNames,
-                                           Map<String, Map<UUID, Long>> bestTimesPerTrack, List<String> trackNames) {
-        // Calculate total time for each player (only if they have times on all tracks)
-        Map<UUID, Long> totalTimes = new HashMap<>();
-        for (UUID uuid : allPlayers) {
-            long total = 0;
-            boolean complete = true;
-            for (String trackName : trackNames) {
-                Long best = bestTimesPerTrack.getOrDefault(trackName, Map.of()).get(uuid);
-                if (best == null) {
-                    complete = false;
-                    break;
-                }
-                total += best;
-            }
-            if (complete) {
-                totalTimes.put(uuid, total);
-            }
+    private void showRank(CommandSender sender, String trackName, String playerName, TrackRecord record, int rank, int total, TrackRecord ahead) {
+        String who = playerName == null ? "You don't" : playerName + " doesn't";
+        if (record == null) {
+            sender.sendMessage(Component.text(who + " have a time on track '" + trackName + "'.", NamedTextColor.GRAY));
+            return;
+        }
+
+        Component line = Component.text(record.getPlayerName(), NamedTextColor.WHITE)
+                .append(Component.text(" is ", NamedTextColor.GRAY))
+                .append(Component.text("#" + rank, LeaderboardCache.rankColor(rank)))
+                .append(Component.text(" of " + total + " on " + trackName + " with ", NamedTextColor.GRAY))
+                .append(Component.text(TrackRecord.formatTime(record.getTimeMs()), NamedTextColor.AQUA));
+        if (ahead != null) {
+            long gap = record.getTimeMs() - ahead.getTimeMs();
+            line = line.append(Component.text(" (" + TrackRecord.formatTime(gap) + " behind #" + (rank - 1) + ")", NamedTextColor.GRAY));
         }
+        sender.sendMessage(line);
+    }
 
-        List<Map.Entry<UUID, Long>> sorted = totalTimes.entrySet().stream()
-                .sorted(Map.Entry.comparingByValue())
-                .limit(leaderboardSize)
-                .collect(Collectors.toList());
+    private void showAround(Player player, String trackName) {
+        RankedLeaderboard.Window window = dataStore.getLeaderboard(trackName).around(player.getUniqueId(), Math.max(2, leaderboardSize / 2));
+        if (window == null) {
+            player.sendMessage(Component.text("You don't have a time on track '" + trackName + "' yet.", NamedTextColor.GRAY));
+            return;
+        }
+        player.sendMessage(Component.text("=== Around you: " + trackName + " ===", NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
+        List<TrackRecord> entries = window.entries();
+        for (int i = 0; i < entries.size(); i++) {
+            int rank = window.firstRank() + i;
+            TrackRecord record = entries.get(i);
+            player.sendMessage(LeaderboardCache.line(rank, record.getPlayerName(), TrackRecord.formatTime(record.getTimeMs()), rank == window.rank()));
+        }
+    }
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            sender.sendMessage(Component.text("=== Event: " + event.getName() + " (Total Time) ===", NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
-            if (sorted.isEmpty()) {
-                sender.sendMessage(Component.text("  No players have completed all tracks.", NamedTextColor.GRAY));
+    private void showEventLeaderboard(CommandSender sender, RaceEvent event) {
+        if (event.getTrackNames().isEmpty()) {
+            sender.sendMessage(Component.text("Event '" + event.getName() + "' has no tracks.", NamedTextColor.GRAY));
+            return;
+        }
+
+        CompletableFuture<EventStandings> standings = leaderboards.loadStandings(event);
+        if (!standings.isDone()) {
+            // First look since startup (or since its tracks changed), the leaderboards need to be in memory
+            sender.sendMessage(Component.text("Calculating leaderboard...", NamedTextColor.GRAY));
+        }
+        standings.whenComplete((built, error) -> {
+            if (isBusy(error)) {
+                sendBusy(sender);
                 return;
             }
-            for (int i = 0; i < sorted.size(); i++) {
-                Map.Entry<UUID, Long> entry = sorted.get(i);
-                NamedTextColor color = i == 0 ? NamedTextColor.GOLD : i == 1 ? NamedTextColor.GRAY : i == 2 ? NamedTextColor.DARK_RED : NamedTextColor.WHITE;
-                sender.sendMessage(Component.text("  #" + (i + 1) + " ", color)
-                        .append(Component.text(playerNames.get(entry.getKey()), NamedTextColor.WHITE))
-                        .append(Component.text(" - " + TrackRecord.formatTime(entry.getValue()), NamedTextColor.AQUA)));
+            if (error != null) {
+                sender.sendMessage(Component.text("Failed to load leaderboards for event '" + event.getName() + "'.", NamedTextColor.RED));
+                return;
             }
+            renderEventStandings(sender, event, built);
         });
     }
 
-    private void showPointsLeaderboard(CommandSender sender, RaceEvent event,
-                                        Set<UUID> allPlayers, Map<UUID, String> playerNames,
-                                        Map<String, Map<UUID, Long>> bestTimesPerTrack, List<String> trackNames) {
-        // Calculate points for each player across all tracks
-        Map<UUID, Integer> playerPoints = new HashMap<>();
-
-        for (String trackName : trackNames) {
-            Map<UUID, Long> bestTimes = bestTimesPerTrack.getOrDefault(trackName, Map.of());
-            List<Map.Entry<UUID, Long>> ranked = bestTimes.entrySet().stream()
-                    .sorted(Map.Entry.comparingByValue())
-                    .collect(Collectors.toList());
-
-            for (int i = 0; i < ranked.size(); i++) {
-                int points = i < pointsTable.size() ? pointsTable.get(i) : 0;
-                playerPoints.merge(ranked.get(i).getKey(), points, Integer::sum);
-            }
+    private void renderEventStandings(CommandSender sender, RaceEvent event, EventStandings standings) {
+        if (standings.playerCount() == 0) {
+            sender.sendMessage(Component.text("No records for any tracks in event '" + event.getName() + "'.", NamedTextColor.GRAY));
+            return;
         }
 
-        List<Map.Entry<UUID, Integer>> sorted = playerPoints.entrySet().stream()
-                .sorted(Map.Entry.<UUID, Integer>comparingByValue().reversed())
-                .limit(leaderboardSize)
-                .collect(Collectors.toList());
+        boolean totalTime = standings.getScoring() == RaceEvent.ScoringType.TOTAL_TIME;
+        LeaderboardCache.Page rendered = leaderboards.eventPage(event, standings, leaderboardSize);
+        sender.sendMessage(Component.text("=== Event: " + event.getName() + (totalTime ? " (Total Time) ===" : " (Points) ==="), NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
+        if (rendered.lines().isEmpty()) {
+            sender.sendMessage(Component.text(totalTime ? "  No players have completed all tracks." : "  No records yet.", NamedTextColor.GRAY));
+            return;
+        }
+        UUID self = sender instanceof Player player ? player.getUniqueId() : null;
+        for (int i = 0; i < rendered.lines().size(); i++) {
+            sender.sendMessage(rendered.line(i, self));
+        }
+    }
 
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            sender.sendMessage(Component.text("=== Event: " + event.getName() + " (Points) ===", NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
-            if (sorted.isEmpty()) {
-                sender.sendMessage(Component.text("  No records yet.", NamedTextColor.GRAY));
-                return;
+    private void showPlacements(CommandSender sender, String playerName, List<DataStore.Placement> placements) {
+        if (placements.isEmpty()) {
+            sender.sendMessage(Component.text("Player '" + playerName + "' isn't on any leaderboard.", NamedTextColor.RED));
+            return;
+        }
+        sender.sendMessage(Component.text("=== " + playerName + "'s placements ===", NamedTextColor.GOLD));
+        for (DataStore.Placement placement : placements) {
+            sender.sendMessage(Component.text("  #" + placement.rank() + " ", LeaderboardCache.rankColor(placement.rank()))
+                    .append(Component.text(placement.track(), NamedTextColor.WHITE))
+                    .append(Component.text(" - " + TrackRecord.formatTime(placement.record().getTimeMs()), NamedTextColor.AQUA))
+                    .append(Component.text(" (of " + placement.total() + ")", NamedTextColor.GRAY)));
+        }
+    }
+
+    private void showStats(CommandSender sender, Track track) {
+        TrackStats stats = track.getStats();
+        sender.sendMessage(Component.text("=== Stats: " + track.getName() + " ===", NamedTextColor.GOLD));
+        long attempts = stats.getAttempts();
+        if (attempts > 0) {
+            // Tracks that had finishes before attempts were counted can have more of those
+            String rate = attempts >= stats.getRuns() ? " (" + Math.round(stats.getRuns() * 100.0 / attempts) + "% finished)" : "";
+            sender.sendMessage(statLine("Attempts", attempts + rate));
+        }
+        if (stats.getRuns() == 0) {
+            sender.sendMessage(Component.text("Nobody has finished this track yet.", NamedTextColor.GRAY));
+            return;
+        }
+        sender.sendMessage(statLine("Finished runs", String.valueOf(stats.getRuns())));
+        sender.sendMessage(statLine("Fastest", TrackRecord.formatTime(stats.getBestMs())));
+        sender.sendMessage(statLine("Median", "~" + TrackRecord.formatTime(stats.quantile(0.5))));
+        sender.sendMessage(statLine("90% finish within", "~" + TrackRecord.formatTime(stats.quantile(0.9))));
+        sender.sendMessage(statLine("Average", TrackRecord.formatTime(stats.getAverageMs())));
+        if (sender instanceof Player player) {
+            long best = dataStore.getPlayerBestTime(player.getUniqueId(), track.getName());
+            if (best >= 0) {
+                long beaten = Math.round(stats.fractionSlower(best) * 100);
+                sender.sendMessage(Component.text("  Your best of " + TrackRecord.formatTime(best) + " beats ", NamedTextColor.GRAY)
+                        .append(Component.text(beaten + "%", NamedTextColor.GREEN))
+                        .append(Component.text(" of runs.", NamedTextColor.GRAY)));
             }
-            for (int i = 0; i < sorted.size(); i++) {
-                Map.Entry<UUID, Integer> entry = sorted.get(i);
-                NamedTextColor color = i == 0 ? NamedTextColor.GOLD : i == 1 ? NamedTextColor.GRAY : i == 2 ? NamedTextColor.DARK_RED : NamedTextColor.WHITE;
-                sender.sendMessage(Component.text("  #" + (i + 1) + " ", color)
-                        .append(Component.text(playerNames.get(entry.getKey()), NamedTextColor.WHITE))
-                        .append(Component.text(" - " + entry.getValue() + " pts", NamedTextColor.AQUA)));
+        }
+    }
+
+    private static Component statLine(String label, String value) {
+        return Component.text("  " + label + ": ", NamedTextColor.GRAY).append(Component.text(value, NamedTextColor.WHITE));
+    }
+
+    private void showHistory(CommandSender sender, String trackName, String playerName, List<RunArchive.Run> runs) {
+        if (runs.isEmpty()) {
+            sender.sendMessage(Component.text(playerName + " has no runs on '" + trackName + "' in the history.", NamedTextColor.YELLOW));
+            return;
+        }
+        sender.sendMessage(Component.text("=== " + playerName + "'s latest runs on " + trackName + " ===", NamedTextColor.GOLD));
+        for (RunArchive.Run run : runs) {
+            Component line = Component.text("  " + HISTORY_DATE.format(Instant.ofEpochMilli(run.timestamp())) + " ", NamedTextColor.GRAY)
+                    .append(Component.text(TrackRecord.formatTime(run.timeMs()), NamedTextColor.AQUA));
+            if (run.splits().length > 0) {
+                StringJoiner laps = new StringJoiner(", ", " (laps ", ")");
+                for (long split : run.splits()) laps.add(TrackRecord.formatTime(split));
+                line = line.append(Component.text(laps.toString(), NamedTextColor.DARK_GRAY));
             }
-        });
+            sender.sendMessage(line);
+        }
+    }
+
+    private String[] listImportFiles() {
+        try (Stream<Path> files = Files.list(dataStore.getImportDir())) {
+            return files.filter(file -> RecordTransfer.Format.of(file) != null).map(file -> file.getFileName().toString()).sorted().toArray(String[]::new);
+        } catch (IOException e) {
+            return new String[0];
+        }
+    }
+
+    private static String rootMessage(Throwable error) {
+        while (error.getCause() != null) error = error.getCause();
+        return String.valueOf(error.getMessage());
+    }
+
+    private static boolean isBusy(Throwable error) {
+        if (error instanceof CompletionException) error = error.getCause();
+        return error instanceof ComputePool.BusyException;
+    }
+
+    private static void sendBusy(CommandSender sender) {
+        sender.sendMessage(Component.text("Leaderboards are busy right now, try again in a moment.", NamedTextColor.YELLOW));
+    }
+
+    private void showStorageStatus(CommandSender sender) {
+        FlushScheduler flush = dataStore.getFlushScheduler();
+        sender.sendMessage(Component.text("=== Storage ===", NamedTextColor.GOLD).decorate(TextDecoration.BOLD));
+        sender.sendMessage(Component.text("  Durability: ", NamedTextColor.GRAY).append(Component.text(dataStore.getDurability().name().toLowerCase(), NamedTextColor.WHITE)));
+        sender.sendMessage(Component.text("  Dirty files: ", NamedTextColor.GRAY).append(Component.text(flush.getDirtyCount(), NamedTextColor.WHITE)));
+        sender.sendMessage(Component.text("  Queued writes: ", NamedTextColor.GRAY).append(Component.text(flush.getQueuedCount() + "/" + flush.getMaxQueued() + " (peak " + flush.getHighWater() + ")", NamedTextColor.WHITE)));
+        sender.sendMessage(Component.text("  Written: ", NamedTextColor.GRAY).append(Component.text(flush.getWritten() + " (" + flush.getCoalesced() + " coalesced, " + flush.getDeferred() + " deferred, " + flush.getFailed() + " failed)", NamedTextColor.WHITE)));
+        for (Map.Entry<String, String> stat : dataStore.getBackendStats().entrySet()) {
+            sender.sendMessage(Component.text("  " + stat.getKey() + ": ", NamedTextColor.GRAY).append(Component.text(stat.getValue(), NamedTextColor.WHITE)));
+        }
+        ComputePool compute = dataStore.getComputePool();
+        sender.sendMessage(Component.text("  Compute: ", NamedTextColor.GRAY).append(Component.text(compute.getActiveCount() + "/" + compute.getThreads() + " busy, "
+                + compute.getQueuedCount() + "/" + compute.getMaxQueued() + " queued (peak " + compute.getHighWater() + "), "
+                + compute.getSubmitted(ComputePool.Priority.INTERACTIVE) + " interactive, " + compute.getSubmitted(ComputePool.Priority.BULK) + " bulk, "
+                + compute.getCompleted() + " done, " + compute.getRejected() + " rejected", NamedTextColor.WHITE)));
+        RunArchive history = dataStore.getHistory();
+        if (history != null) {
+            sender.sendMessage(Component.text("  Run history: ", NamedTextColor.GRAY).append(Component.text(
+                    history.getWritten() + " runs written since startup, " + history.getPendingCount() + " waiting", NamedTextColor.WHITE)));
+        }
+        sender.sendMessage(Component.text("  Rendered pages: ", NamedTextColor.GRAY).append(Component.text(leaderboards.size() + " (" + leaderboards.getHits() + " hits, " + leaderboards.getMisses() + " misses)", NamedTextColor.WHITE)));
     }
 
     private StringArgument trackNameArgument() {
-        return (StringArgument) new StringArgument("name").replaceSuggestions(
-                ArgumentSuggestions.strings(info -> dataStore.getTracks().keySet().toArray(new String[0])));
+        return (StringArgument) new StringArgument("name").replaceSuggestions(suggest(dataStore.getTrackNames()));
+    }
+
+    // Anyone on a loaded leaderboard, online or not
+    private StringArgument playerNameArgument() {
+        return (StringArgument) new StringArgument("player").replaceSuggestions(suggest(dataStore.getPlayerNames()));
     }
 
     private StringArgument eventNameArgument() {
-        return (StringArgument) new StringArgument("name").replaceSuggestions(
-                ArgumentSuggestions.strings(info -> dataStore.getEvents().keySet().toArray(new String[0])));
+        return (StringArgument) new StringArgument("name").replaceSuggestions(suggest(dataStore.getEventNames()));
+    }
+
+    /**
+     * Completions for what's been typed so far, looked up off the calling thread. The index is
+     * safe to read from anywhere, so this never waits on the global region.
+     */
+    private static ArgumentSuggestions<CommandSender> suggest(NameIndex index) {
+        return ArgumentSuggestions.stringsAsync(info -> CompletableFuture.supplyAsync(() -> index.complete(info.currentArg(), MAX_SUGGESTIONS)));
     }
 
     private String formatLocation(org.bukkit.Location loc) {
@@ -20,8 +20,9 @@ package world.ultravanilla.ultrastopwatch.listener;
 
 import org.bukkit.Location;
 import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.World;
 import org.bukkit.block.Block;
-import org.bukkit.block.BlockFace;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -29,157 +30,221 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.entity.EntityInteractEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.plugin.Plugin;
+import world.ultravanilla.ultrastopwatch.Scheduling;
 import world.ultravanilla.ultrastopwatch.model.Track;
 import world.ultravanilla.ultrastopwatch.storage.DataStore;
+import world.ultravanilla.ultrastopwatch.storage.TrackIndex;
 import world.ultravanilla.ultrastopwatch.timer.PlayerTimer;
 import world.ultravanilla.ultrastopwatch.timer.TimerManager;
 
-import java.util.EnumSet;
-import java.util.Set;
+import java.util.UUID;
 
 public class TimerListener implements Listener {
 
-    // TODO: Move this list to conf to make it future-proof
-    private static final Set<Material> PRESSURE_PLATES = EnumSet.of(
-            Material.OAK_PRESSURE_PLATE,
-            Material.SPRUCE_PRESSURE_PLATE,
-            Material.BIRCH_PRESSURE_PLATE,
-            Material.JUNGLE_PRESSURE_PLATE,
-            Material.ACACIA_PRESSURE_PLATE,
-            Material.DARK_OAK_PRESSURE_PLATE,
-            Material.CHERRY_PRESSURE_PLATE,
-            Material.BAMBOO_PRESSURE_PLATE,
-            Material.MANGROVE_PRESSURE_PLATE,
-            Material.CRIMSON_PRESSURE_PLATE,
-            Material.WARPED_PRESSURE_PLATE,
-            Material.STONE_PRESSURE_PLATE,
-            Material.POLISHED_BLACKSTONE_PRESSURE_PLATE,
-            Material.LIGHT_WEIGHTED_PRESSURE_PLATE,
-            Material.HEAVY_WEIGHTED_PRESSURE_PLATE
-    );
-
+    private final Plugin plugin;
     private final TimerManager timerManager;
     private final DataStore dataStore;
+    private final TriggerRegistry triggers;
+    private final boolean autoArmStartLines;
+    private final boolean pollPendingStarts;
 
-    public TimerListener(TimerManager timerManager, DataStore dataStore) {
+    public TimerListener(Plugin plugin, TimerManager timerManager, DataStore dataStore, TriggerRegistry triggers, boolean autoArmStartLines) {
+        this.plugin = plugin;
         this.timerManager = timerManager;
         this.dataStore = dataStore;
+        this.triggers = triggers;
+        this.autoArmStartLines = autoArmStartLines;
+        this.pollPendingStarts = timerManager.isPollingPendingStarts();
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onPlayerMove(PlayerMoveEvent event) {
         // Hot path check
-        if (!timerManager.isPending(event.getPlayer().getUniqueId())) return;
+        Player player = event.getPlayer();
         Location to = event.getTo();
-        if (!hasPositionChanged(event.getFrom(), to)) return;
-
-        PlayerTimer timer = timerManager.getTimer(event.getPlayer().getUniqueId());
-        if (timer != null && timer.type() == PlayerTimer.TimerType.TRACK) {
-            Track track = dataStore.getTrack(timer.trackName());
-            if (track != null && track.isFullyConfigured()) {
-                // Check both current block and block below to account for jumping or floating tripwires
-                Block toBlock = to.getBlock();
-                Block fromBlock = event.getFrom().getBlock();
+        PlayerTimer timer = timerManager.getTimer(player.getUniqueId());
+        if (timer == null) {
+            if (autoArmStartLines && hasPositionChanged(event.getFrom(), to)) autoArm(player, to);
+            return;
+        }
+        if (!timer.isPending()) {
+            if (to != null) timerManager.recordPosition(timer, to);
+            return;
+        }
+        // Pending timers are the poller's job in tick mode
+        if (pollPendingStarts) return;
+        Location from = event.getFrom();
+        if (!hasPositionChanged(from, to)) return;
 
-                boolean entering = track.isStartBlock(toBlock) || track.isStartBlock(toBlock.getRelative(BlockFace.DOWN));
-                boolean leaving = track.isStartBlock(fromBlock) || track.isStartBlock(fromBlock.getRelative(BlockFace.DOWN));
+        double crossing = 1;
+        if (timer.type() == PlayerTimer.TimerType.TRACK) {
+            Track track = timer.track();
+            if (track.isFullyConfigured()) {
+                TrackIndex index = dataStore.getTrackIndex();
+                boolean entering = onStartLine(index, track, to);
+                boolean leaving = onStartLine(index, track, from);
 
                 if (!entering && !leaving) return;
+                if (track.getClock() == Track.ClockMode.TICK) {
+                    crossing = track.startCrossing(from.getX(), from.getZ(), to.getX(), to.getZ());
+                }
+            }
+        }
+
+        timerManager.triggerStart(timer, crossing);
+    }
+
+    // Stepping onto a start line arms that track as if they'd used /track run,
+    // so their next move off (or along) the line starts the timer
+    private void autoArm(Player player, Location to) {
+        TrackIndex index = dataStore.getTrackIndex();
+        World world = to.getWorld();
+        Track[] tracks = index.startsAt(world, to.getBlockX(), to.getBlockY(), to.getBlockZ());
+        if (tracks.length == 0) {
+            tracks = index.startsAt(world, to.getBlockX(), to.getBlockY() - 1, to.getBlockZ());
+            if (tracks.length == 0) return;
+        }
+        if (!player.hasPermission("ultrastopwatch.use")) return;
+        for (Track track : tracks) {
+            if (track.isFullyConfigured()) {
+                timerManager.armTrackRun(player, track);
+                return;
             }
         }
+    }
 
-        timerManager.triggerStart(event.getPlayer());
+    // Check both current block and block below to account for jumping or floating tripwires
+    private boolean onStartLine(TrackIndex index, Track track, Location loc) {
+        World world = loc.getWorld();
+        int x = loc.getBlockX();
+        int y = loc.getBlockY();
+        int z = loc.getBlockZ();
+        return index.isStart(track, world, x, y, z) || index.isStart(track, world, x, y - 1, z);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onEntityInteract(EntityInteractEvent event) {
         // Check block type before checking passengers
-        Material type = event.getBlock().getType();
-        if (!PRESSURE_PLATES.contains(type) && type != Material.TRIPWIRE) return;
+        Block block = event.getBlock();
+        Material type = block.getType();
+        if (!triggers.isTrigger(type)) return;
 
+        long sets = -1;
         for (org.bukkit.entity.Entity passenger : event.getEntity().getPassengers()) {
             if (passenger instanceof Player player) {
-                if (!timerManager.isRunning(player.getUniqueId())) continue;
-                handlePhysicalInteract(player, event.getBlock());
+                PlayerTimer timer = timerManager.getTimer(player.getUniqueId());
+                if (timer == null || !timer.isRunning()) continue;
+                if (sets < 0) sets = triggers.match(block, type);
+                handleTrigger(timer, block, type, sets);
             }
         }
     }
 
     @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerInteract(PlayerInteractEvent event) {
-        if (event.getAction() != Action.PHYSICAL) return;
+        Action action = event.getAction();
+        if (action != Action.PHYSICAL && action != Action.RIGHT_CLICK_BLOCK) return;
+        // Clicks fire once per hand, stepping on something has no hand
+        if (action == Action.RIGHT_CLICK_BLOCK && event.getHand() != EquipmentSlot.HAND) return;
         Block block = event.getClickedBlock();
         if (block == null) return;
 
         Material type = block.getType();
-        if (!PRESSURE_PLATES.contains(type) && type != Material.TRIPWIRE) return;
+        if (!triggers.isTrigger(type)) return;
+        // Plates and tripwire only count when stepped on, not clicked from the side
+        if (action == Action.RIGHT_CLICK_BLOCK && (type == Material.TRIPWIRE || Tag.PRESSURE_PLATES.isTagged(type))) return;
 
-        if (!timerManager.isRunning(event.getPlayer().getUniqueId())) return;
+        PlayerTimer timer = timerManager.getTimer(event.getPlayer().getUniqueId());
+        if (timer == null || !timer.isRunning()) return;
 
-        handlePhysicalInteract(event.getPlayer(), block);
+        handleTrigger(timer, block, type, triggers.match(block, type));
     }
 
-    private void handlePhysicalInteract(Player player, Block block) {
-        Material blockType = block.getType();
-        boolean isPlate = PRESSURE_PLATES.contains(blockType);
-        PlayerTimer timer = timerManager.getTimer(player.getUniqueId());
-        if (timer == null) return;
-
+    /**
+     * @param sets the trigger sets the block is in, see {@link TriggerRegistry#match}
+     */
+    private void handleTrigger(PlayerTimer timer, Block block, Material blockType, long sets) {
         if (timer.type() == PlayerTimer.TimerType.CASUAL) {
-            if (isPlate) {
-                timerManager.stop(player);
+            if ((sets & triggers.casualMask()) != 0) {
+                timerManager.stop(timer.player());
             }
             return;
         }
 
         if (timer.type() == PlayerTimer.TimerType.TRACK) {
-            Track track = dataStore.getTrack(timer.trackName());
-            if (track == null) return;
+            Track track = timer.track();
 
             // Trigger Delay check (needed for tracks with startline on or near endline)
-            if (track.getTriggerDelay() > 0) {
-                long startNanos = timerManager.getStartTime(player.getUniqueId());
-                long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
-                if (elapsed < track.getTriggerDelay()) return;
+            if (timer.isInTriggerDelay()) {
+                if (timerManager.getElapsedMillis(timer) < track.getTriggerDelay()) return;
             }
 
             // Check Trigger Type
-            if (track.getTriggerType() == Track.TriggerType.PRESSURE_PLATE && !isPlate) return;
-            if (track.getTriggerType() == Track.TriggerType.TRIPWIRE && blockType != Material.TRIPWIRE) return;
+            if ((sets & triggers.maskFor(track)) == 0) return;
 
             // part of the finish line?
-            boolean isEnd = track.isEndBlock(block);
+            TrackIndex index = dataStore.getTrackIndex();
+            World world = block.getWorld();
+            boolean isEnd = index.isEnd(track, world, block.getX(), block.getY(), block.getZ());
             if (!isEnd && blockType == Material.TRIPWIRE) {
-                isEnd = track.isEndBlock(block.getRelative(BlockFace.DOWN));
+                isEnd = index.isEnd(track, world, block.getX(), block.getY() - 1, block.getZ());
             }
             if (!isEnd) {
                 return;
             }
 
             // Check for laps
+            double crossing = timerManager.endCrossing(timer);
             if (track.getLaps() > 1) {
-                if (!timerManager.lap(player, track.getLaps(), track.getTriggerDelay())) {
+                if (!timerManager.lap(timer, crossing)) {
                     return;
                 }
             }
 
-            timerManager.stop(player, true);
+            timerManager.finish(timer, crossing);
         }
     }
 
+    // Monitor so we only prefetch for logins that actually go through
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        dataStore.prefetchPlayerRecords(event.getUniqueId());
+    }
+
+    // DataStore calls go through the global region, these fire on the player's (or world's)
+    // region on Folia
+
+    @EventHandler
+    public void onWorldLoad(WorldLoadEvent event) {
+        Scheduling.runGlobal(plugin, dataStore::rebuildTrackIndex);
+    }
+
+    @EventHandler
+    public void onWorldUnload(WorldUnloadEvent event) {
+        Scheduling.runGlobal(plugin, dataStore::rebuildTrackIndex);
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
-        dataStore.loadPlayerRecords(event.getPlayer().getUniqueId());
+        UUID uuid = event.getPlayer().getUniqueId();
+        Scheduling.runGlobal(plugin, () -> dataStore.playerJoined(uuid));
     }
 
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
-        timerManager.removeTimer(event.getPlayer().getUniqueId());
-        dataStore.unloadPlayerRecords(event.getPlayer().getUniqueId());
+        UUID uuid = event.getPlayer().getUniqueId();
+        timerManager.removeTimer(uuid);
+        Scheduling.runGlobal(plugin, () -> dataStore.playerQuit(uuid));
     }
 
     @EventHandler
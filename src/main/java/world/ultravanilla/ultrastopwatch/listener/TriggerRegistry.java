@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.listener;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
+import org.bukkit.Tag;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.configuration.ConfigurationSection;
+import world.ultravanilla.ultrastopwatch.model.Track;
+
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * The {@code triggers} sets from the config: which blocks can end a run. Entries are block tags
+ * ({@code #minecraft:pressure_plates}), materials ({@code tripwire}) or block states
+ * ({@code stone_button[face=floor]}). Everything is compiled into per-material bitmasks, one
+ * bit per set, so a block is matched against every set at once.
+ */
+public final class TriggerRegistry {
+
+    // Bit 63 is left alone so masks stay positive, -1 means unresolved on Track
+    private static final int MAX_SETS = 63;
+
+    private record StateRule(BlockData pattern, long sets) {}
+
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Long> masks = new HashMap<>();
+    // By Material ordinal
+    private final long[] byMaterial = new long[Material.values().length];
+    private final long[] possible = new long[Material.values().length];
+    private final StateRule[][] byState = new StateRule[Material.values().length][];
+    private long casualMask;
+
+    private TriggerRegistry() {}
+
+    /**
+     * @param section the {@code triggers} section, falls back to plates and tripwire when missing
+     * @param casualSet the set that stops casual (/startrun) timers
+     */
+    public static TriggerRegistry load(ConfigurationSection section, String casualSet, Logger logger) {
+        TriggerRegistry registry = new TriggerRegistry();
+        Map<String, List<String>> sets = new LinkedHashMap<>();
+        if (section != null) {
+            for (String name : section.getKeys(false)) {
+                sets.put(name.toLowerCase(), section.getStringList(name));
+            }
+        }
+        if (sets.isEmpty()) {
+            sets.put(Track.DEFAULT_TRIGGER, List.of("#minecraft:pressure_plates"));
+            sets.put("tripwire", List.of("tripwire"));
+        }
+
+        Map<Material, List<StateRule>> stateRules = new EnumMap<>(Material.class);
+        for (Map.Entry<String, List<String>> set : sets.entrySet()) {
+            if (registry.names.size() == MAX_SETS) {
+                logger.warning("Only " + MAX_SETS + " trigger sets are supported, ignoring '" + set.getKey() + "'.");
+                break;
+            }
+            long bit = 1L << registry.names.size();
+            registry.names.add(set.getKey());
+            registry.masks.put(set.getKey(), bit);
+            for (String entry : set.getValue()) {
+                if (!registry.add(entry.trim(), bit, stateRules)) {
+                    logger.warning("Unknown trigger '" + entry + "' in trigger set '" + set.getKey() + "', skipping.");
+                }
+            }
+        }
+        stateRules.forEach((material, rules) -> registry.byState[material.ordinal()] = rules.toArray(new StateRule[0]));
+
+        registry.casualMask = registry.masks.getOrDefault(casualSet == null ? "" : casualSet.toLowerCase(), 0L);
+        if (registry.casualMask == 0) {
+            logger.warning("Unknown casual-trigger '" + casualSet + "', casual timers will only stop with /sw stop.");
+        }
+        return registry;
+    }
+
+    private boolean add(String entry, long bit, Map<Material, List<StateRule>> stateRules) {
+        if (entry.startsWith("#")) {
+            NamespacedKey key = NamespacedKey.fromString(entry.substring(1).toLowerCase());
+            Tag<Material> tag = key == null ? null : Bukkit.getTag(Tag.REGISTRY_BLOCKS, key, Material.class);
+            if (tag == null) return false;
+            for (Material material : tag.getValues()) {
+                byMaterial[material.ordinal()] |= bit;
+                possible[material.ordinal()] |= bit;
+            }
+            return true;
+        }
+        if (entry.indexOf('[') >= 0) {
+            BlockData pattern;
+            try {
+                pattern = Bukkit.createBlockData(entry.toLowerCase());
+            } catch (IllegalArgumentException e) {
+                return false;
+            }
+            Material material = pattern.getMaterial();
+            stateRules.computeIfAbsent(material, m -> new ArrayList<>()).add(new StateRule(pattern, bit));
+            possible[material.ordinal()] |= bit;
+            return true;
+        }
+        Material material = Material.matchMaterial(entry);
+        if (material == null || !material.isBlock()) return false;
+        byMaterial[material.ordinal()] |= bit;
+        possible[material.ordinal()] |= bit;
+        return true;
+    }
+
+    /** Cheap first check, false if no set could ever match this material. */
+    public boolean isTrigger(Material type) {
+        return possible[type.ordinal()] != 0;
+    }
+
+    /** Every set the block is in right now, as a mask. */
+    public long match(Block block, Material type) {
+        int ordinal = type.ordinal();
+        long sets = byMaterial[ordinal];
+        StateRule[] rules = byState[ordinal];
+        if (rules != null) {
+            BlockData data = block.getBlockData();
+            for (StateRule rule : rules) {
+                if ((sets & rule.sets()) == 0 && rule.pattern().matches(data)) sets |= rule.sets();
+            }
+        }
+        return sets;
+    }
+
+    /** The track's trigger set as a mask, 0 if the config doesn't have it. Cached on the track. */
+    public long maskFor(Track track) {
+        long mask = track.getTriggerMask();
+        if (mask < 0) {
+            mask = masks.getOrDefault(track.getTriggerType(), 0L);
+            track.setTriggerMask(mask);
+        }
+        return mask;
+    }
+
+    public long casualMask() {
+        return casualMask;
+    }
+
+    public boolean has(String name) {
+        return masks.containsKey(name.toLowerCase());
+    }
+
+    /** Set names in config order. */
+    public List<String> names() {
+        return Collections.unmodifiableList(names);
+    }
+}
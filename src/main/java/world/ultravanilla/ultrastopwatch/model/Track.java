@@ -3,13 +3,15 @@ package world.ultravanilla.ultrastopwatch.model;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.block.Block;
 
 public class Track {
 
-    public enum TriggerType {
-        PRESSURE_PLATE,
-        TRIPWIRE
+    public static final String DEFAULT_TRIGGER = "pressure_plate";
+
+    // WALL times with the system clock, TICK counts server ticks so lag spikes don't end up in times
+    public enum ClockMode {
+        WALL,
+        TICK
     }
 
     private String name;
@@ -22,10 +24,16 @@ public class Track {
     private int endBx, endBy, endBz;
     private boolean endASet = false;
     private boolean endBSet = false;
-    private TriggerType triggerType = TriggerType.PRESSURE_PLATE;
+    // Name of a trigger set from the config, old files still have PRESSURE_PLATE/TRIPWIRE here
+    private String triggerType = DEFAULT_TRIGGER;
+    private transient long triggerMask = -1;
     private boolean leaderboardEnabled = true;
     private long triggerDelay = 0;
     private int laps = 1;
+    private ClockMode clock = ClockMode.WALL;
+    // Only in tracks.json from before stats got their own files, moved over on load
+    private TrackStats stats;
+    private transient TrackStats runStats;
 
     public Track() {}
 
@@ -33,6 +41,22 @@ public class Track {
         this.name = name;
     }
 
+    public TrackStats getStats() {
+        if (runStats == null) runStats = new TrackStats();
+        return runStats;
+    }
+
+    public void setStats(TrackStats stats) {
+        this.runStats = stats;
+    }
+
+    /** Stats an older version left in tracks.json, null if none. Clears them. */
+    public TrackStats takeLegacyStats() {
+        TrackStats legacy = stats;
+        stats = null;
+        return legacy;
+    }
+
     public String getName() {
         return name;
     }
@@ -74,19 +98,6 @@ public class Track {
         return true;
     }
 
-    public boolean isStartBlock(Block block) {
-        if (!startBSet) return false;
-        if (!block.getWorld().getName().equals(world)) return false;
-        if (block.getY() != startAy) return false;
-        int x = block.getX();
-        int z = block.getZ();
-        int minX = Math.min(startAx, startBx);
-        int maxX = Math.max(startAx, startBx);
-        int minZ = Math.min(startAz, startBz);
-        int maxZ = Math.max(startAz, startBz);
-        return x >= minX && x <= maxX && z >= minZ && z <= maxZ;
-    }
-
     public Location getStartPoint1() {
         if (!startASet) return null;
         World w = Bukkit.getWorld(world);
@@ -126,19 +137,6 @@ public class Track {
         return true;
     }
 
-    public boolean isEndBlock(Block block) {
-        if (!endBSet) return false;
-        if (!block.getWorld().getName().equals(world)) return false;
-        if (block.getY() != endAy) return false;
-        int x = block.getX();
-        int z = block.getZ();
-        int minX = Math.min(endAx, endBx);
-        int maxX = Math.max(endAx, endBx);
-        int minZ = Math.min(endAz, endBz);
-        int maxZ = Math.max(endAz, endBz);
-        return x >= minX && x <= maxX && z >= minZ && z <= maxZ;
-    }
-
     public Location getEndPoint1() {
         if (!endASet) return null;
         World w = Bukkit.getWorld(world);
@@ -153,12 +151,22 @@ public class Track {
         return new Location(w, endBx, endBy, endBz);
     }
 
-    public TriggerType getTriggerType() {
-        return triggerType;
+    public String getTriggerType() {
+        return triggerType == null ? DEFAULT_TRIGGER : triggerType.toLowerCase();
+    }
+
+    public void setTriggerType(String triggerType) {
+        this.triggerType = triggerType.toLowerCase();
+        this.triggerMask = -1;
     }
 
-    public void setTriggerType(TriggerType triggerType) {
-        this.triggerType = triggerType;
+    /** The trigger set as resolved by the registry, -1 until it has been. */
+    public long getTriggerMask() {
+        return triggerMask;
+    }
+
+    public void setTriggerMask(long triggerMask) {
+        this.triggerMask = triggerMask;
     }
 
     public boolean isLeaderboardEnabled() {
@@ -185,6 +193,50 @@ public class Track {
         this.laps = laps;
     }
 
+    public ClockMode getClock() {
+        return clock == null ? ClockMode.WALL : clock;
+    }
+
+    public void setClock(ClockMode clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * How far through a move from one position to the next the player crossed the start line,
+     * 0 being the start of the move and 1 the end.
+     */
+    public double startCrossing(double fromX, double fromZ, double toX, double toZ) {
+        return crossing(startAx, startAz, startBx, startBz, fromX, fromZ, toX, toZ);
+    }
+
+    /** Same as {@link #startCrossing} for the finish line. */
+    public double endCrossing(double fromX, double fromZ, double toX, double toZ) {
+        return crossing(endAx, endAz, endBx, endBz, fromX, fromZ, toX, toZ);
+    }
+
+    private static double crossing(int ax, int az, int bx, int bz, double fromX, double fromZ, double toX, double toZ) {
+        // Lines run along one axis, so they're crossed along the other one
+        boolean alongX;
+        if (ax != bx) alongX = true;
+        else if (az != bz) alongX = false;
+        else alongX = Math.abs(toZ - fromZ) >= Math.abs(toX - fromX);
+        double lo = alongX ? az : ax;
+        double from = alongX ? fromZ : fromX;
+        double to = alongX ? toZ : toX;
+        if (from == to) return 1;
+
+        boolean wasOn = from >= lo && from < lo + 1;
+        double boundary;
+        if (!wasOn) {
+            boundary = to > from ? lo : lo + 1; // entering
+        } else if (!(to >= lo && to < lo + 1)) {
+            boundary = to > from ? lo + 1 : lo; // leaving
+        } else {
+            return 1;
+        }
+        return Math.max(0, Math.min(1, (boundary - from) / (to - from)));
+    }
+
     public boolean isStartASet() {
         return startASet;
     }
@@ -18,6 +18,13 @@ public class TrackRecord implements Comparable<TrackRecord> {
         this.timestamp = System.currentTimeMillis();
     }
 
+    public TrackRecord(UUID playerUUID, String playerName, long timeMs, long timestamp) {
+        this.playerUUID = playerUUID;
+        this.playerName = playerName;
+        this.timeMs = timeMs;
+        this.timestamp = timestamp;
+    }
+
     public UUID getPlayerUUID() {
         return playerUUID;
     }
@@ -0,0 +1,95 @@
+package world.ultravanilla.ultrastopwatch.model;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * How many runs on a track were started, and every finished one squeezed into a log-linear histogram: times under 128ms get
+ * their own bucket, above that each doubling is split into 64 buckets, so any time lands in a
+ * bucket within about 1% of it. Only buckets that were hit are stored, a track sees a few
+ * hundred at most, so quantiles never depend on how many runs there were.
+ */
+public class TrackStats {
+
+    private static final int SUB_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    // Timer starts, missing from stats saved before they were counted
+    private long attempts;
+    private long runs;
+    private long totalMs;
+    private long bestMs = -1;
+    private long worstMs = -1;
+    // Bucket index -> runs
+    private TreeMap<Integer, Long> buckets = new TreeMap<>();
+
+    public void add(long timeMs) {
+        timeMs = Math.max(0, timeMs);
+        runs++;
+        totalMs += timeMs;
+        if (bestMs < 0 || timeMs < bestMs) bestMs = timeMs;
+        if (timeMs > worstMs) worstMs = timeMs;
+        buckets.merge(bucket(timeMs), 1L, Long::sum);
+    }
+
+    public void addAttempt() {
+        attempts++;
+    }
+
+    public long getAttempts() {
+        return attempts;
+    }
+
+    public long getRuns() {
+        return runs;
+    }
+
+    public long getBestMs() {
+        return bestMs;
+    }
+
+    public long getAverageMs() {
+        return runs == 0 ? -1 : totalMs / runs;
+    }
+
+    /**
+     * @param q between 0 and 1, 0.5 for the median
+     * @return the time, -1 with no runs
+     */
+    public long quantile(double q) {
+        if (runs == 0) return -1;
+        long target = Math.max(1, (long) Math.ceil(q * runs));
+        long seen = 0;
+        for (Map.Entry<Integer, Long> entry : buckets.entrySet()) {
+            seen += entry.getValue();
+            if (seen >= target) return Math.max(bestMs, Math.min(worstMs, middle(entry.getKey())));
+        }
+        return worstMs;
+    }
+
+    /**
+     * Share of runs slower than the time, 0 to 1. Runs in the same bucket count as half slower.
+     */
+    public double fractionSlower(long timeMs) {
+        if (runs == 0) return 0;
+        int bucket = bucket(Math.max(0, timeMs));
+        long slower = 0;
+        for (long count : buckets.tailMap(bucket, false).values()) slower += count;
+        double same = buckets.getOrDefault(bucket, 0L) / 2.0;
+        return (slower + same) / runs;
+    }
+
+    static int bucket(long timeMs) {
+        if (timeMs < 2 * SUB_BUCKETS) return (int) timeMs;
+        int exponent = 63 - Long.numberOfLeadingZeros(timeMs);
+        int shift = exponent - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((timeMs >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    static long middle(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        long low = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return low + ((1L << shift) >> 1);
+    }
+}
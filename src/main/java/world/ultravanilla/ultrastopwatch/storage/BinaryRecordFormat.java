@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Fixed-width binary segments for track leaderboards and personal top times.
+ *
+ * <pre>
+ * track:  magic 'USWT' | u16 version | u16 reserved | i32 entries | i32 names
+ *         entries x (i64 uuidMsb, i64 uuidLsb, i64 timeMs, i64 timestamp, i32 nameIndex)
+ *         names   x (u16 length, utf8 bytes)
+ *
+ * player: magic 'USWP' | u16 version | u16 reserved | i32 tracks | i32 names
+ *         tracks  x (i32 nameIndex, i32 count, i64 x 3 times)
+ *         names   x (u16 length, utf8 bytes)
+ * </pre>
+ *
+ * Entries sit at fixed offsets right after the header, names go last.
+ */
+public final class BinaryRecordFormat {
+
+    public static final String EXTENSION = ".bin";
+
+    private static final int TRACK_MAGIC = 0x55535754;  // USWT
+    private static final int PLAYER_MAGIC = 0x55535750; // USWP
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int TRACK_ENTRY_BYTES = 36;
+    private static final int PLAYER_SLOTS = 3;
+    private static final int PLAYER_ENTRY_BYTES = 8 + 8 * PLAYER_SLOTS;
+
+    private BinaryRecordFormat() {}
+
+    // --- Track leaderboards ---
+
+    public static byte[] encodeTrack(List<TrackRecord> records) {
+        Map<String, Integer> nameIndex = new LinkedHashMap<>();
+        for (TrackRecord r : records) {
+            nameIndex.putIfAbsent(r.getPlayerName() == null ? "" : r.getPlayerName(), nameIndex.size());
+        }
+        List<byte[]> names = encodeNames(nameIndex.keySet());
+
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + records.size() * TRACK_ENTRY_BYTES + namesBytes(names));
+        buf.putInt(TRACK_MAGIC).putShort(VERSION).putShort((short) 0)
+                .putInt(records.size()).putInt(names.size());
+        for (TrackRecord r : records) {
+            buf.putLong(r.getPlayerUUID().getMostSignificantBits())
+                    .putLong(r.getPlayerUUID().getLeastSignificantBits())
+                    .putLong(r.getTimeMs())
+                    .putLong(r.getTimestamp())
+                    .putInt(nameIndex.get(r.getPlayerName() == null ? "" : r.getPlayerName()));
+        }
+        putNames(buf, names);
+        return buf.array();
+    }
+
+    public static List<TrackRecord> readTrack(Path file) throws IOException {
+        ByteBuffer buf = map(file);
+        try {
+            int entries = readHeader(buf, TRACK_MAGIC, file);
+            int nameCount = buf.getInt();
+            checkCount(entries, TRACK_ENTRY_BYTES, buf, file);
+
+            // Names live after the fixed-width entries
+            ByteBuffer names = buf.duplicate();
+            names.position(HEADER_BYTES + entries * TRACK_ENTRY_BYTES);
+            String[] nameTable = readNames(names, nameCount);
+
+            List<TrackRecord> records = new ArrayList<>(entries);
+            for (int i = 0; i < entries; i++) {
+                UUID uuid = new UUID(buf.getLong(), buf.getLong());
+                long timeMs = buf.getLong();
+                long timestamp = buf.getLong();
+                records.add(new TrackRecord(uuid, nameTable[checkIndex(buf.getInt(), nameCount, file)], timeMs, timestamp));
+            }
+            return records;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated record segment " + file.getFileName(), e);
+        }
+    }
+
+    // --- Personal top times ---
+
+    public static byte[] encodePlayer(Map<String, List<Long>> records) {
+        List<String> trackNames = new ArrayList<>(records.keySet());
+        List<byte[]> names = encodeNames(trackNames);
+
+        ByteBuffer buf = ByteBuffer.allocate(HEADER_BYTES + trackNames.size() * PLAYER_ENTRY_BYTES + namesBytes(names));
+        buf.putInt(PLAYER_MAGIC).putShort(VERSION).putShort((short) 0)
+                .putInt(trackNames.size()).putInt(names.size());
+        for (int i = 0; i < trackNames.size(); i++) {
+            List<Long> times = records.get(trackNames.get(i));
+            int count = Math.min(PLAYER_SLOTS, times.size());
+            buf.putInt(i).putInt(count);
+            for (int slot = 0; slot < PLAYER_SLOTS; slot++) {
+                buf.putLong(slot < count ? times.get(slot) : 0L);
+            }
+        }
+        putNames(buf, names);
+        return buf.array();
+    }
+
+    public static Map<String, List<Long>> readPlayer(Path file) throws IOException {
+        ByteBuffer buf = map(file);
+        try {
+            int tracks = readHeader(buf, PLAYER_MAGIC, file);
+            int nameCount = buf.getInt();
+            checkCount(tracks, PLAYER_ENTRY_BYTES, buf, file);
+
+            ByteBuffer names = buf.duplicate();
+            names.position(HEADER_BYTES + tracks * PLAYER_ENTRY_BYTES);
+            String[] nameTable = readNames(names, nameCount);
+
+            Map<String, List<Long>> records = new HashMap<>();
+            for (int i = 0; i < tracks; i++) {
+                String track = nameTable[checkIndex(buf.getInt(), nameCount, file)];
+                int count = Math.min(PLAYER_SLOTS, Math.max(0, buf.getInt()));
+                List<Long> times = new ArrayList<>(count);
+                for (int slot = 0; slot < PLAYER_SLOTS; slot++) {
+                    long t = buf.getLong();
+                    if (slot < count) times.add(t);
+                }
+                records.put(track, times);
+            }
+            return records;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated record segment " + file.getFileName(), e);
+        }
+    }
+
+    // --- Helpers ---
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // Mapping outlives the channel, the buffer is only used until we return
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            mapped.load();
+            return mapped;
+        }
+    }
+
+    private static int readHeader(ByteBuffer buf, int magic, Path file) throws IOException {
+        if (buf.remaining() < HEADER_BYTES || buf.getInt() != magic) {
+            throw new IOException("Not a record segment: " + file.getFileName());
+        }
+        short version = buf.getShort();
+        if (version != VERSION) {
+            throw new IOException("Unsupported record segment version " + version + " in " + file.getFileName());
+        }
+        buf.getShort();
+        return buf.getInt();
+    }
+
+    private static void checkCount(int count, int entryBytes, ByteBuffer buf, Path file) throws IOException {
+        if (count < 0 || (long) count * entryBytes > buf.remaining()) {
+            throw new IOException("Corrupt entry count in " + file.getFileName());
+        }
+    }
+
+    private static int checkIndex(int index, int nameCount, Path file) throws IOException {
+        if (index < 0 || index >= nameCount) {
+            throw new IOException("Corrupt name index in " + file.getFileName());
+        }
+        return index;
+    }
+
+    private static List<byte[]> encodeNames(Collection<String> names) {
+        List<byte[]> out = new ArrayList<>(names.size());
+        for (String name : names) {
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) bytes = Arrays.copyOf(bytes, 0xFFFF);
+            out.add(bytes);
+        }
+        return out;
+    }
+
+    private static int namesBytes(List<byte[]> names) {
+        int total = 0;
+        for (byte[] name : names) {
+            total += 2 + name.length;
+        }
+        return total;
+    }
+
+    private static void putNames(ByteBuffer buf, List<byte[]> names) {
+        for (byte[] name : names) {
+            buf.putShort((short) name.length).put(name);
+        }
+    }
+
+    private static String[] readNames(ByteBuffer buf, int count) throws IOException {
+        if (count < 0) throw new IOException("Corrupt name table");
+        String[] names = new String[count];
+        byte[] scratch = new byte[64];
+        for (int i = 0; i < count; i++) {
+            int len = Short.toUnsignedInt(buf.getShort());
+            if (len > scratch.length) scratch = new byte[len];
+            buf.get(scratch, 0, len);
+            names[i] = new String(scratch, 0, len, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+}
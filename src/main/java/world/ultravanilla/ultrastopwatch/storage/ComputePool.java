@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A few threads of our own for number crunching that shouldn't happen on a region thread.
+ * Interactive lookups jump ahead of bulk work, and once too much is waiting new work is
+ * turned away with {@link BusyException} instead of piling up.
+ */
+public class ComputePool {
+
+    public enum Priority {
+        INTERACTIVE, // someone is waiting on a single answer
+        BULK         // event scoring and other whole-dataset work
+    }
+
+    /** The pool is full, try again later. */
+    public static class BusyException extends RejectedExecutionException {
+        public BusyException() {
+            super("Compute pool is busy");
+        }
+    }
+
+    private static final class Job implements Runnable, Comparable<Job> {
+        final Priority priority;
+        final long seq;
+        final Runnable body;
+        // Failed if the job never gets to run
+        final CompletableFuture<?> result;
+
+        Job(Priority priority, long seq, Runnable body, CompletableFuture<?> result) {
+            this.priority = priority;
+            this.seq = seq;
+            this.body = body;
+            this.result = result;
+        }
+
+        @Override
+        public void run() {
+            body.run();
+        }
+
+        @Override
+        public int compareTo(Job other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+
+    private final ThreadPoolExecutor executor;
+    private final int maxQueued;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong[] submitted = {new AtomicLong(), new AtomicLong()};
+    private volatile int highWater = 0;
+
+    public ComputePool(int threads, int maxQueued) {
+        int size = Math.max(1, threads);
+        this.maxQueued = Math.max(1, maxQueued);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "UltraStopwatch-compute-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Runs the work on the pool. The future fails with {@link BusyException} right away if
+     * too much is already waiting.
+     */
+    public <T> CompletableFuture<T> submit(Priority priority, Supplier<T> work) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        int waiting = queued.incrementAndGet();
+        if (waiting > maxQueued || executor.isShutdown()) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            result.completeExceptionally(new BusyException());
+            return result;
+        }
+        if (waiting > highWater) highWater = waiting;
+        submitted[priority.ordinal()].incrementAndGet();
+        try {
+            executor.execute(new Job(priority, seq.getAndIncrement(), () -> {
+                queued.decrementAndGet();
+                try {
+                    result.complete(work.get());
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                } finally {
+                    completed.incrementAndGet();
+                }
+            }, result));
+        } catch (RejectedExecutionException e) {
+            queued.decrementAndGet();
+            rejected.incrementAndGet();
+            result.completeExceptionally(new BusyException());
+        }
+        return result;
+    }
+
+    public void shutdown() {
+        // Whoever is waiting on queued work gets an answer instead of hanging
+        for (Runnable dropped : executor.shutdownNow()) {
+            if (dropped instanceof Job job) {
+                queued.decrementAndGet();
+                rejected.incrementAndGet();
+                job.result.completeExceptionally(new BusyException());
+            }
+        }
+    }
+
+    public int getThreads() {
+        return executor.getMaximumPoolSize();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public int getQueuedCount() {
+        return queued.get();
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getHighWater() {
+        return highWater;
+    }
+
+    public long getSubmitted(Priority priority) {
+        return submitted[priority.ordinal()].get();
+    }
+
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
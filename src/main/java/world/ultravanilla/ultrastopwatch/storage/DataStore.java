@@ -19,78 +19,257 @@
 package world.ultravanilla.ultrastopwatch.storage;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonSyntaxException;
-import com.google.gson.reflect.TypeToken;
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Bukkit;
 import org.bukkit.plugin.java.JavaPlugin;
+import world.ultravanilla.ultrastopwatch.Scheduling;
 import world.ultravanilla.ultrastopwatch.model.RaceEvent;
 import world.ultravanilla.ultrastopwatch.model.Track;
 import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+import world.ultravanilla.ultrastopwatch.model.TrackStats;
 
-import java.io.*;
-import java.lang.reflect.Type;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
+import java.io.Closeable;
+import java.io.IOException;
 import java.nio.file.Path;
-import java.nio.file.StandardCopyOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
-import java.util.stream.Stream;
 
+/**
+ * All tracks, events and records. Lives on the global region (the main thread on Paper), only
+ * the IO thread and async login prefetches touch it from elsewhere.
+ */
 public class DataStore {
 
-    private final Path dataDir;
-    private final Path tracksFile;
-    private final Path recordsDir;
-    private final Path playerRecordsDir;
-    private final Path eventsFile;
-    private final Gson gson;
+    public enum Durability {
+        IMMEDIATE, // record changes hit the journal (and disk) right away
+        BATCHED    // everything, journal included, waits for the next flush
+    }
+
+    private static final long IDLE_SWEEP_MILLIS = 60_000L;
+    private static final long PREFETCH_TIMEOUT_SECONDS = 5;
+    private static final DateTimeFormatter EXPORT_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final Gson gson = new Gson();
     private final Logger logger;
     private final JavaPlugin plugin;
     private final ExecutorService ioExecutor;
+    private final ComputePool computePool;
+    private final StorageBackend backend;
+    private final FlushScheduler flushScheduler;
+    private final Durability durability;
+    private final long flushIntervalTicks;
+    private final boolean warmUpLeaderboards;
+    private final long leaderboardIdleMillis;
+    private long lastIdleSweep = System.currentTimeMillis();
+    private final RunArchive history; // null when disabled
+    private final StatsStore statsStore;
+    // Tracks whose stats changed since their file was last snapshotted
+    private final Set<String> dirtyStats = new HashSet<>();
+    private final long historyFlushMillis;
+    private long lastHistoryFlush = System.currentTimeMillis();
+    private ScheduledTask flushTask;
 
     private final Map<String, Track> tracks = new ConcurrentHashMap<>();
-    private final Map<String, List<TrackRecord>> records = new ConcurrentHashMap<>();
-    private final Map<UUID, Map<String, List<Long>>> playerRecords = new ConcurrentHashMap<>();
+    private volatile TrackIndex trackIndex = TrackIndex.EMPTY;
+    private final Map<String, RankedLeaderboard> records = new ConcurrentHashMap<>();
+    private final PlayerRecordCache playerCache;
+    private final Map<String, EventStandings> standings = new HashMap<>();
+    private final List<Integer> pointsTable;
     private final Map<String, RaceEvent> events = new ConcurrentHashMap<>();
+    // For tab completion, kept in step with the maps above
+    private final NameIndex trackNames = new NameIndex();
+    private final NameIndex eventNames = new NameIndex();
+    private final PlayerIndex players = new PlayerIndex();
+    // Done once the player index has seen every stored leaderboard, see buildPlayerIndex
+    private final CompletableFuture<Void> playerIndexBuilt = new CompletableFuture<>();
     private volatile boolean loaded = false;
 
     public DataStore(Path dataDir, Logger logger, JavaPlugin plugin) {
-        this.dataDir = dataDir;
-        this.tracksFile = dataDir.resolve("tracks.json");
-        this.recordsDir = dataDir.resolve("records").resolve("tracks");
-        this.playerRecordsDir = dataDir.resolve("records").resolve("player");
-        this.eventsFile = dataDir.resolve("events.json");
         this.logger = logger;
         this.plugin = plugin;
-        this.gson = new GsonBuilder().setPrettyPrinting().create();
         this.ioExecutor = Executors.newSingleThreadExecutor();
+        this.computePool = new ComputePool(plugin.getConfig().getInt("compute.threads", 2), plugin.getConfig().getInt("compute.max-queued", 32));
+        this.flushScheduler = new FlushScheduler(ioExecutor, plugin.getConfig().getInt("storage.max-queued-writes", 64));
+        this.flushIntervalTicks = Math.max(1, plugin.getConfig().getLong("storage.flush-interval-ticks", 40));
+        this.warmUpLeaderboards = plugin.getConfig().getBoolean("storage.warm-up-leaderboards", false);
+        this.playerCache = new PlayerRecordCache(plugin.getConfig().getInt("storage.player-cache-size", 500), this::evictPlayer);
+        List<Integer> configuredPoints = plugin.getConfig().getIntegerList("points-table");
+        this.pointsTable = configuredPoints.isEmpty() ? List.of(10, 8, 6, 5, 4, 3, 2, 1) : List.copyOf(configuredPoints);
+        this.leaderboardIdleMillis = plugin.getConfig().getLong("storage.leaderboard-idle-minutes", 30) * 60_000L;
+        this.history = plugin.getConfig().getBoolean("history.enabled", true)
+                ? new RunArchive(dataDir.resolve("history"), logger, plugin.getConfig().getLong("history.retention-days", 90) * 86_400_000L)
+                : null;
+        this.statsStore = new StatsStore(dataDir.resolve("stats"), logger);
+        this.historyFlushMillis = Math.max(1, plugin.getConfig().getLong("history.flush-seconds", 300)) * 1000L;
+        Durability configured;
+        try {
+            configured = Durability.valueOf(plugin.getConfig().getString("storage.durability", "immediate").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            logger.warning("Unknown storage.durability, using immediate.");
+            configured = Durability.IMMEDIATE;
+        }
+        this.durability = configured;
+
+        FileStorageBackend files = new FileStorageBackend(dataDir, logger, ioExecutor, durability,
+                "binary".equalsIgnoreCase(plugin.getConfig().getString("storage.format", "json")),
+                plugin.getConfig().getLong("storage.journal-compact-kb", 1024) * 1024L);
+        String backendName = plugin.getConfig().getString("storage.backend", "file");
+        if ("sqlite".equalsIgnoreCase(backendName)) {
+            // Existing files are imported the first time the database is created
+            this.backend = new SqlStorageBackend(dataDir, logger, ioExecutor, durability, files);
+        } else {
+            if (!"file".equalsIgnoreCase(backendName)) {
+                logger.warning("Unknown storage.backend, using file.");
+            }
+            this.backend = files;
+        }
     }
 
     public boolean load() {
-        try {
-            Files.createDirectories(recordsDir);
-            Files.createDirectories(playerRecordsDir);
-        } catch (IOException e) {
-            logger.severe("Failed to create data directories: " + e.getMessage());
+        // Everything is parsed into locals first and only merged once every phase succeeded,
+        // so a corrupt file leaves the store empty and the plugin disables itself
+        Map<String, Track> loadedTracks;
+        Map<String, RaceEvent> loadedEvents;
+        Map<String, TrackStats> loadedStats;
+        Map<String, List<TrackRecord>> loadedRecords = Map.of();
+        try (StartupLoader loader = new StartupLoader()) {
+            if (!StartupLoader.await(loader.submit("open", () -> backend.open(new BackendState())))) return false;
+
+            Future<Map<String, Track>> tracksPhase = loader.submit("tracks", backend::loadTracks);
+            Future<Map<String, RaceEvent>> eventsPhase = loader.submit("events", backend::loadEvents);
+            Future<Map<String, TrackStats>> statsPhase = loader.submit("stats", statsStore::load);
+            if (warmUpLeaderboards) {
+                try {
+                    loadedRecords = loader.loadAll("leaderboards", backend.listLeaderboards(), trackName -> {
+                        try {
+                            return backend.loadRecords(trackName);
+                        } catch (IOException e) {
+                            throw new IOException("track " + trackName + ": " + e.getMessage(), e);
+                        }
+                    });
+                } catch (IOException | RuntimeException e) {
+                    logger.severe("Failed to load records for " + e.getMessage());
+                    return false;
+                }
+            }
+            try {
+                loadedTracks = StartupLoader.await(tracksPhase);
+            } catch (IOException | RuntimeException e) {
+                logger.severe("Failed to load tracks: " + e.getMessage());
+                return false;
+            }
+            try {
+                loadedEvents = StartupLoader.await(eventsPhase);
+            } catch (IOException | RuntimeException e) {
+                logger.severe("Failed to load events: " + e.getMessage());
+                return false;
+            }
+            try {
+                loadedStats = StartupLoader.await(statsPhase);
+            } catch (IOException | RuntimeException e) {
+                logger.severe("Failed to load track stats: " + e.getMessage());
+                return false;
+            }
+            loader.logTimings(logger);
+        } catch (IOException | RuntimeException e) {
+            logger.severe("Failed to open storage: " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return false;
         }
 
-        if (!loadTracks()) return false;
-        if (!loadAllRecords()) return false;
-        if (!loadEvents()) return false;
+        tracks.putAll(loadedTracks);
+        boolean migratedStats = false;
+        for (Map.Entry<String, Track> entry : tracks.entrySet()) {
+            TrackStats legacy = entry.getValue().takeLegacyStats();
+            TrackStats stored = loadedStats.get(entry.getKey());
+            if (stored != null) {
+                entry.getValue().setStats(stored);
+            } else if (legacy != null) {
+                entry.getValue().setStats(legacy);
+                markStatsDirty(entry.getKey(), entry.getValue());
+                migratedStats = true;
+            }
+        }
+        // Writes tracks.json again without them
+        if (migratedStats) markTracksDirty();
+        rebuildTrackIndex();
+        trackNames.addAll(tracks.keySet());
+        events.putAll(loadedEvents);
+        eventNames.addAll(events.keySet());
+        for (Map.Entry<String, List<TrackRecord>> entry : loadedRecords.entrySet()) {
+            RankedLeaderboard board = new RankedLeaderboard();
+            entry.getValue().forEach(board::submit);
+            records.put(entry.getKey(), board);
+            players.addAll(entry.getKey(), entry.getValue());
+        }
         loaded = true;
+        buildPlayerIndex();
+        flushTask = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, task -> flushTick(), flushIntervalTicks, flushIntervalTicks);
         return true;
     }
 
+    private void flushTick() {
+        flushScheduler.flushDirty();
+        backend.tick();
+        long now = System.currentTimeMillis();
+        if (leaderboardIdleMillis > 0 && now - lastIdleSweep >= IDLE_SWEEP_MILLIS) {
+            lastIdleSweep = now;
+            unloadIdleLeaderboards(now);
+        }
+        if (history != null && history.getPendingCount() > 0 && (now - lastHistoryFlush >= historyFlushMillis || history.hasFullBatch())) {
+            lastHistoryFlush = now;
+            Map<String, List<RunArchive.Run>> runs = history.drain();
+            ioExecutor.submit(() -> history.write(runs));
+        }
+    }
+
+    private class BackendState implements StorageBackend.State {
+        @Override
+        public List<TrackRecord> trackRecords(String track) {
+            // Already in rank order
+            RankedLeaderboard board = records.get(track.toLowerCase());
+            return board == null || !board.isReady() ? null : board.snapshot();
+        }
+
+        @Override
+        public Map<String, List<Long>> playerRecords(UUID uuid) {
+            return playerCache.get(uuid);
+        }
+
+        @Override
+        public Collection<String> leaderboards() {
+            return records.keySet();
+        }
+
+        @Override
+        public Collection<UUID> loadedPlayers() {
+            return playerCache.keys();
+        }
+    }
+
     
     // --- Synchronous save for shutdown ---
     // lowk scared ive missed something here T.T
     public void saveAll() {
+        if (flushTask != null) {
+            flushTask.cancel();
+            flushTask = null;
+        }
+        computePool.shutdown();
         ioExecutor.shutdown();
             try {
                 // 2. Wait a moment for active background tasks to finish
@@ -104,159 +283,220 @@ public class DataStore {
 
         if (!loaded) {
             logger.warning("DataStore was not fully loaded. Skipping save to prevent data loss.");
+            backend.close(false);
             Thread.currentThread().interrupt();
             return;
         }
 
-        saveFileSync(tracksFile, gson.toJson(tracks));
-        for (Map.Entry<String, List<TrackRecord>> entry : records.entrySet()) {
-            List<TrackRecord> trackRecords = entry.getValue();
-            if (trackRecords != null && !trackRecords.isEmpty()) {
-                Path file = recordsDir.resolve(entry.getKey().toLowerCase() + ".json");
-                synchronized (trackRecords) {
-                    saveFileSync(file, gson.toJson(trackRecords));
-                }
-            }
+        backend.saveTracks(gson.toJsonTree(tracks).getAsJsonObject());
+        backend.saveEvents(gson.toJsonTree(events).getAsJsonObject());
+        for (String key : dirtyStats) {
+            Track track = tracks.get(key);
+            if (track != null) statsStore.save(key, gson.toJsonTree(track.getStats()));
         }
-        for (Map.Entry<UUID, Map<String, List<Long>>> entry : playerRecords.entrySet()) {
-            if (entry.getValue() != null && !entry.getValue().isEmpty()) {
-                Path file = playerRecordsDir.resolve(entry.getKey().toString() + ".json");
-                saveFileSync(file, gson.toJson(entry.getValue()));
-            }
-        }
-        saveFileSync(eventsFile, gson.toJson(events));
+        backend.close(true);
+        if (history != null) history.write(history.drain());
     }
 
-    // --- Atomic write helpers ---
+    public FlushScheduler getFlushScheduler() {
+        return flushScheduler;
+    }
 
-    private void saveFileSync(Path target, String json) {
-        Path tmpFile = target.resolveSibling(target.getFileName().toString() + "." + UUID.randomUUID() + ".tmp");
-        try {
-            Files.writeString(tmpFile, json, StandardCharsets.UTF_8);
-            Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
-        } catch (IOException e) {
-            logger.severe("Failed to save " + target.getFileName() + ": " + e.getMessage());
-            try { Files.deleteIfExists(tmpFile); } catch (IOException ignored) {}
-        }
+    public ComputePool getComputePool() {
+        return computePool;
     }
 
-    // --- Tracks ---
+    public NameIndex getTrackNames() {
+        return trackNames;
+    }
 
-    private boolean loadTracks() {
-        if (!Files.exists(tracksFile)) return true;
-        try (Reader reader = Files.newBufferedReader(tracksFile, StandardCharsets.UTF_8)) {
-            Type type = new TypeToken<Map<String, Track>>() {}.getType();
-            Map<String, Track> loaded = gson.fromJson(reader, type);
-            if (loaded != null) {
-                tracks.putAll(loaded);
-            }
-            return true;
-        } catch (IOException | JsonSyntaxException e) {
-            logger.severe("Failed to load tracks: " + e.getMessage());
-            return false;
+    public NameIndex getEventNames() {
+        return eventNames;
+    }
+
+    public NameIndex getPlayerNames() {
+        return players.names();
+    }
+
+    public Durability getDurability() {
+        return durability;
+    }
+
+    public Map<String, String> getBackendStats() {
+        int loading = 0;
+        for (RankedLeaderboard board : records.values()) {
+            if (!board.isReady()) loading++;
         }
+        Map<String, String> stats = new LinkedHashMap<>(backend.stats());
+        stats.put("Track index", trackIndex.size() + " line blocks");
+        stats.put("Leaderboards", records.size() + " in memory, " + loading + " loading");
+        stats.put("Player cache", playerCache.size() + "/" + playerCache.getMaxSize() + " (" + playerCache.pinnedCount() + " online), "
+                + playerCache.getHits() + " hits, " + playerCache.getMisses() + " misses, " + playerCache.getEvictions() + " evicted");
+        return stats;
     }
 
+    // --- Tracks ---
+
     public void saveTracks() {
-        // Serialize on main thread
-        String json = gson.toJson(tracks);
-        ioExecutor.submit(() -> saveFileSync(tracksFile, json));
+        // Every track edit ends up here, so it's also where the line index catches up
+        rebuildTrackIndex();
+        markTracksDirty();
+    }
+
+    // For changes that don't move any lines
+    private void markTracksDirty() {
+        // Snapshotted on main thread at the next flush
+        flushScheduler.markDirty("tracks", () -> {
+            var snapshot = gson.toJsonTree(tracks).getAsJsonObject();
+            return () -> backend.saveTracks(snapshot);
+        });
+    }
+
+    // Just the one track's stats file, finishes don't touch tracks.json
+    private void markStatsDirty(String key, Track track) {
+        if (!dirtyStats.add(key)) return;
+        flushScheduler.markDirty("stats:" + key, () -> {
+            dirtyStats.remove(key);
+            var snapshot = gson.toJsonTree(track.getStats());
+            return () -> statsStore.save(key, snapshot);
+        });
     }
 
     public Map<String, Track> getTracks() {
         return tracks;
     }
 
+    /**
+     * Start and finish line lookups by block, rebuilt whenever tracks are saved.
+     */
+    public TrackIndex getTrackIndex() {
+        return trackIndex;
+    }
+
+    /**
+     * Call when a world loads or unloads, lines are indexed by the world's UID.
+     */
+    public void rebuildTrackIndex() {
+        trackIndex = TrackIndex.build(tracks.values());
+    }
+
     public Track getTrack(String name) {
         return tracks.get(name.toLowerCase());
     }
 
     public void addTrack(Track track) {
         tracks.put(track.getName().toLowerCase(), track);
+        trackNames.add(track.getName().toLowerCase());
         saveTracks();
     }
 
     public Track removeTrack(String name) {
         Track removed = tracks.remove(name.toLowerCase());
         if (removed != null) {
+            trackNames.remove(name);
             saveTracks();
-            records.remove(name.toLowerCase());
-            Path recordFile = recordsDir.resolve(name.toLowerCase() + ".json");
-            ioExecutor.submit(() -> {
-                try {
-                    Files.deleteIfExists(recordFile);
-                } catch (IOException e) {
-                    logger.warning("Failed to delete record file for track " + name + ": " + e.getMessage());
-                }
-            });
+            dropLeaderboard(name.toLowerCase());
+            String key = name.toLowerCase();
+            // Replaces any pending save for the same track
+            dirtyStats.remove(key);
+            flushScheduler.markDirty("stats:" + key, () -> () -> statsStore.delete(key));
         }
         return removed;
     }
 
     // --- Records ---
 
-    private boolean loadAllRecords() {
-        if (!Files.exists(recordsDir)) return true;
-        try (Stream<Path> files = Files.list(recordsDir)) {
-            for (Path p : files.filter(p -> p.toString().endsWith(".json")).toList()) {
-                if (!loadRecordFile(p)) return false;
-            }
-            return true;
-        } catch (IOException e) {
-            logger.severe("Failed to list record files: " + e.getMessage());
-            return false;
+    /**
+     * The track's leaderboard, loading it in the background if it isn't in memory yet.
+     * Check {@link RankedLeaderboard#isReady()} before trusting reads, writes are fine either way.
+     */
+    public RankedLeaderboard getLeaderboard(String trackName) {
+        String key = trackName.toLowerCase();
+        RankedLeaderboard board = records.get(key);
+        if (board == null) {
+            board = records.computeIfAbsent(key, k -> {
+                RankedLeaderboard placeholder = RankedLeaderboard.loading();
+                submitLoad(k, placeholder);
+                return placeholder;
+            });
+        } else if (board.retryLoad()) {
+            submitLoad(key, board);
         }
+        board.touch();
+        return board;
     }
 
-    private boolean loadRecordFile(Path file) {
-        String fileName = file.getFileName().toString();
-        String trackName = fileName.substring(0, fileName.length() - 5); // strip .json
-        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-            Type type = new TypeToken<List<TrackRecord>>() {}.getType();
-            List<TrackRecord> loaded = gson.fromJson(reader, type);
-            if (loaded != null) {
-                records.put(trackName, Collections.synchronizedList(new ArrayList<>(loaded)));
-            }
-            return true;
-        } catch (IOException | JsonSyntaxException e) {
-            logger.severe("Failed to load records for track " + trackName + ": " + e.getMessage());
-            return false;
+    public CompletableFuture<RankedLeaderboard> loadLeaderboard(String trackName) {
+        return getLeaderboard(trackName).whenLoaded();
+    }
+
+    private void submitLoad(String key, RankedLeaderboard board) {
+        if (ioExecutor.isShutdown()) {
+            loadInto(key, board);
+        } else {
+            ioExecutor.submit(() -> loadInto(key, board));
         }
     }
 
-    private void saveRecordsForTrack(String trackName) {
-        List<TrackRecord> trackRecords = records.get(trackName.toLowerCase());
-        if (trackRecords == null || trackRecords.isEmpty()) return;
-        
-        // Snapshot for async
-        List<TrackRecord> snapshot;
-        synchronized (trackRecords) {
-            snapshot = new ArrayList<>(trackRecords);
+    private void loadInto(String key, RankedLeaderboard board) {
+        try {
+            List<TrackRecord> stored = backend.loadRecords(key);
+            board.completeLoad(stored);
+            // Reset while it was loading, what it read is gone
+            if (records.get(key) == board) players.addAll(key, stored);
+        } catch (IOException | RuntimeException e) {
+            // Stays out of snapshots (and the journal stays put) until a retry succeeds
+            logger.severe("Failed to load records for track " + key + ": " + e.getMessage());
+            board.failLoad(e);
         }
-        Path file = recordsDir.resolve(trackName.toLowerCase() + ".json");
-        
+    }
+
+    // Reads every stored board once in the background just for the player index, so finding a
+    // player's boards doesn't mean loading all of them. Boards in memory index themselves.
+    private void buildPlayerIndex() {
         ioExecutor.submit(() -> {
-            Collections.sort(snapshot);
-            String json = gson.toJson(snapshot);
-            saveFileSync(file, json);
+            Collection<String> stored;
+            try {
+                stored = backend.listLeaderboards();
+            } catch (IOException | RuntimeException e) {
+                logger.warning("Couldn't list leaderboards for the player index: " + e.getMessage());
+                playerIndexBuilt.complete(null);
+                return;
+            }
+            // A task per board so writes queued meanwhile don't wait behind all of them
+            for (String track : stored) {
+                ioExecutor.submit(() -> indexStoredBoard(track.toLowerCase()));
+            }
+            ioExecutor.submit(() -> playerIndexBuilt.complete(null));
         });
     }
 
-    public List<TrackRecord> getRecords(String trackName) {
-        String key = trackName.toLowerCase();
-        List<TrackRecord> list = records.get(key);
-        if (list == null) {
-            list = Collections.synchronizedList(new ArrayList<>());
-            List<TrackRecord> existing = records.putIfAbsent(key, list);
-            if (existing != null) {
-                list = existing;
+    // Runs on ioExecutor
+    private void indexStoredBoard(String key) {
+        // Loaded ones went through loadInto, deleted tracks' files are on their way out
+        if (records.containsKey(key) || !tracks.containsKey(key)) return;
+        try {
+            players.addAll(key, backend.loadRecords(key));
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Couldn't index players on track " + key + ": " + e.getMessage());
+        }
+    }
+
+    private void unloadIdleLeaderboards(long now) {
+        for (Map.Entry<String, RankedLeaderboard> entry : records.entrySet()) {
+            RankedLeaderboard board = entry.getValue();
+            if (!board.isReady() || now - board.getLastAccess() < leaderboardIdleMillis) continue;
+            String key = entry.getKey();
+            if (records.remove(key, board)) {
+                // Queued behind any reload of the same track, so that reload sees these
+                List<TrackRecord> snapshot = board.snapshot();
+                ioExecutor.submit(() -> backend.trackUnloaded(key, snapshot));
             }
         }
-        return list;
     }
 
     public long getPlayerBestTime(UUID uuid, String trackName) {
-        Map<String, List<Long>> pRecords = playerRecords.get(uuid);
+        Map<String, List<Long>> pRecords = playerCache.get(uuid);
         if (pRecords == null) return -1;
 
         List<Long> times = pRecords.get(trackName.toLowerCase());
@@ -267,85 +507,159 @@ public class DataStore {
         }
     }
 
-    public long getPlayerLeaderboardTime(UUID uuid, String trackName) {
-        List<TrackRecord> trackRecords = getRecords(trackName);
-        synchronized (trackRecords) {
-            for (TrackRecord r : trackRecords) {
-                if (r.getPlayerUUID().equals(uuid)) {
-                    return r.getTimeMs();
+    /**
+     * The player's leaderboard time, -1 without one. Completes on the IO thread when the board
+     * had to be looked up or loaded.
+     */
+    public CompletableFuture<Long> getPlayerLeaderboardTime(UUID uuid, String trackName) {
+        String key = trackName.toLowerCase();
+        RankedLeaderboard board = records.get(key);
+        if (board != null && board.isReady()) {
+            board.touch();
+            return CompletableFuture.completedFuture(board.getTime(uuid));
+        }
+        if (isQueryable(key)) {
+            return query(() -> {
+                TrackRecord record = backend.queryRecord(key, uuid);
+                return record == null ? -1L : record.getTimeMs();
+            });
+        }
+        return loadLeaderboard(key).thenApply(loaded -> loaded.getTime(uuid));
+    }
+
+    /**
+     * Loads the board ahead of a finish, unless the backend can look the time up without it.
+     */
+    public void prefetchLeaderboard(String trackName) {
+        if (!backend.hasIndexedQueries()) getLeaderboard(trackName);
+    }
+
+    // --- Indexed lookups, for boards that aren't in memory ---
+
+    /** One page of a leaderboard and how many entries the whole board has. */
+    public record BoardPage(List<TrackRecord> entries, int total) {}
+
+    /**
+     * @param rank 1-based, -1 without a record
+     * @param ahead whoever is one place up, null in first place
+     */
+    public record BoardRank(TrackRecord record, int rank, int total, TrackRecord ahead) {}
+
+    /**
+     * True when the track's board isn't in memory and the backend can page and rank it from
+     * its index, so a lookup doesn't have to load the whole board.
+     */
+    public boolean isQueryable(String trackName) {
+        return backend.hasIndexedQueries() && !records.containsKey(trackName.toLowerCase());
+    }
+
+    /** See {@link #isQueryable}. Completes on the IO thread. */
+    public CompletableFuture<BoardPage> queryPage(String trackName, int offset, int limit) {
+        String key = trackName.toLowerCase();
+        return query(() -> new BoardPage(backend.queryTop(key, offset, limit), backend.queryCount(key)));
+    }
+
+    /** See {@link #isQueryable}. Completes on the IO thread. */
+    public CompletableFuture<BoardRank> queryRank(String trackName, UUID uuid) {
+        String key = trackName.toLowerCase();
+        return query(() -> {
+            int total = backend.queryCount(key);
+            TrackRecord record = backend.queryRecord(key, uuid);
+            if (record == null) return new BoardRank(null, -1, total, null);
+            int rank = backend.queryRank(key, uuid);
+            List<TrackRecord> ahead = rank > 1 ? backend.queryTop(key, rank - 2, 1) : List.of();
+            return new BoardRank(record, rank, total, ahead.isEmpty() ? null : ahead.get(0));
+        });
+    }
+
+    private interface Query<T> {
+        T run() throws IOException;
+    }
+
+    // On the IO thread, so it sees every write queued before it
+    private <T> CompletableFuture<T> query(Query<T> query) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return query.run();
+                } catch (IOException e) {
+                    throw new CompletionException(e);
                 }
-            }
+            }, ioExecutor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        return -1;
     }
 
     // --- Player Records ---
 
-    public void loadPlayerRecords(UUID uuid) {
-        ioExecutor.submit(() -> {
-            Path file = playerRecordsDir.resolve(uuid.toString() + ".json");
-            if (!Files.exists(file)) return;
-
-            try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
-                Type type = new TypeToken<Map<String, List<Long>>>() {}.getType();
-                Map<String, List<Long>> loaded = gson.fromJson(reader, type);
-                if (loaded != null) {
-                    Map<String, List<Long>> prepared = new ConcurrentHashMap<>();
-                    for (Map.Entry<String, List<Long>> entry : loaded.entrySet()) {
-                        prepared.put(entry.getKey(), Collections.synchronizedList(new ArrayList<>(entry.getValue())));
-                    }
-                    playerRecords.merge(uuid, prepared, (existing, fromDisk) -> {
-                        for (Map.Entry<String, List<Long>> entry : fromDisk.entrySet()) {
-                            existing.merge(entry.getKey(), entry.getValue(), (currentList, diskList) -> {
-                                synchronized (currentList) {
-                                    currentList.addAll(diskList);
-                                    Collections.sort(currentList);
-                                    while (currentList.size() > 3) {
-                                        currentList.remove(currentList.size() - 1);
-                                    }
-                                }
-                                return currentList;
-                            });
-                        }
-                        return existing;
-                    });
-                }
-            } catch (Exception e) {
-                logger.warning("Failed to load player records for " + uuid + ": " + e.getMessage());
-            }
-        });
+    /**
+     * Loads a player's top times into the cache before they join. Blocks, so only call it
+     * from an async login thread.
+     */
+    public void prefetchPlayerRecords(UUID uuid) {
+        if (playerCache.lookup(uuid) || ioExecutor.isShutdown()) return;
+        // Through the IO thread so it lines up behind any pending write for this player
+        Future<?> load = ioExecutor.submit(() -> loadPlayerRecordsNow(uuid));
+        try {
+            load.get(PREFETCH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            logger.warning("Prefetching records for " + uuid + " is taking a while, finishing after join.");
+        } catch (ExecutionException e) {
+            logger.warning("Failed to load player records for " + uuid + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
-    public void unloadPlayerRecords(UUID uuid) {
-        if (ioExecutor.isShutdown()) return;
-        ioExecutor.submit(() -> {
-            Map<String, List<Long>> records = playerRecords.remove(uuid);
-            if (records != null) {
-                savePlayerRecordsSnapshot(uuid, records);
-            }
-        });
+    public void playerJoined(UUID uuid) {
+        playerCache.pin(uuid);
+        if (playerCache.get(uuid) == null && !ioExecutor.isShutdown()) {
+            // Prefetch didn't happen (or hasn't finished), load it now
+            ioExecutor.submit(() -> loadPlayerRecordsNow(uuid));
+        }
     }
 
-    private void savePlayerRecords(UUID uuid) {
-        ioExecutor.submit(() -> {
-            Map<String, List<Long>> records = playerRecords.get(uuid);
-            if (records != null) {
-                savePlayerRecordsSnapshot(uuid, records);
-            }
-        });
+    public void playerQuit(UUID uuid) {
+        // Stays cached until it's pushed out, quick rejoins don't go back to disk
+        playerCache.unpin(uuid);
     }
 
-    private void savePlayerRecordsSnapshot(UUID uuid, Map<String, List<Long>> records) {
-        Map<String, List<Long>> snapshot = new HashMap<>();
-        for (Map.Entry<String, List<Long>> entry : records.entrySet()) {
-            synchronized (entry.getValue()) {
-                snapshot.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+    // Runs on ioExecutor
+    private void loadPlayerRecordsNow(UUID uuid) {
+        if (playerCache.get(uuid) != null) return;
+        Map<String, List<Long>> prepared = new ConcurrentHashMap<>();
+        try {
+            Map<String, List<Long>> loaded = backend.loadPlayerRecords(uuid);
+            if (loaded != null) {
+                for (Map.Entry<String, List<Long>> entry : loaded.entrySet()) {
+                    prepared.put(entry.getKey(), Collections.synchronizedList(new ArrayList<>(entry.getValue())));
+                }
             }
+        } catch (IOException | RuntimeException e) {
+            logger.warning("Failed to load player records for " + uuid + ": " + e.getMessage());
+            return;
         }
-        Path file = playerRecordsDir.resolve(uuid.toString() + ".json");
+        Map<String, List<Long>> cached = playerCache.putIfAbsent(uuid, prepared);
+        if (cached != prepared) {
+            // Only after a failed prefetch: they finished a run before this load landed
+            // The journal only saw their new times, so hand it the merged lists too
+            Bukkit.getGlobalRegionScheduler().execute(plugin, () -> prepared.forEach((track, stored) -> {
+                List<Long> times = cached.computeIfAbsent(track, k -> Collections.synchronizedList(new ArrayList<>()));
+                for (long time : stored) {
+                    insertTime(times, time);
+                }
+                synchronized (times) {
+                    backend.putPlayerTimes(uuid, track, new ArrayList<>(times));
+                }
+            }));
+        }
+    }
 
-        String json = gson.toJson(snapshot);
-        saveFileSync(file, json);
+    private void evictPlayer(UUID uuid, Map<String, List<Long>> records) {
+        if (!ioExecutor.isShutdown()) {
+            ioExecutor.submit(() -> backend.playerUnloaded(uuid, records));
+        }
     }
 
     public boolean addRecord(String trackName, TrackRecord record) {
@@ -359,101 +673,427 @@ public class DataStore {
     }
 
     private void addGlobalRecord(String trackName, TrackRecord record) {
-        List<TrackRecord> trackRecords = getRecords(trackName);
-        boolean updated = false;
-        synchronized (trackRecords) {
-            long bestTime = Long.MAX_VALUE;
-            for (TrackRecord r : trackRecords) {
-                if (r.getPlayerUUID().equals(record.getPlayerUUID())) {
-                    bestTime = Math.min(bestTime, r.getTimeMs());
-                }
-            }
+        mergeRecord(trackName.toLowerCase(), getLeaderboard(trackName), record);
+    }
 
-            if (record.getTimeMs() < bestTime) {
-                trackRecords.removeIf(r -> r.getPlayerUUID().equals(record.getPlayerUUID()));
-                trackRecords.add(record);
-                updated = true;
-            }
-        }
-        
-        if (updated) {
-            saveRecordsForTrack(trackName);
-        }
+    // Kept only if it beats the player's current entry
+    private boolean mergeRecord(String key, RankedLeaderboard board, TrackRecord record) {
+        if (!board.submit(record)) return false;
+        players.add(key, record);
+        backend.putRecord(key, record);
+        updateStandings(key, record.getPlayerUUID(), board);
+        return true;
     }
 
     private boolean addPlayerRecord(UUID uuid, String trackName, long timeMs) {
-        Map<String, List<Long>> pRecords = playerRecords.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>());
+        Map<String, List<Long>> pRecords = playerCache.getOrCreate(uuid);
         List<Long> times = pRecords.computeIfAbsent(trackName.toLowerCase(), k -> Collections.synchronizedList(new ArrayList<>()));
-        
-        boolean isBest = false;
+        boolean isBest = insertTime(times, timeMs);
+        List<Long> snapshot;
         synchronized (times) {
-            if (times.isEmpty() || timeMs < times.get(0)) {
-                isBest = true;
-            }
+            snapshot = new ArrayList<>(times);
+        }
+        backend.putPlayerTimes(uuid, trackName.toLowerCase(), snapshot);
+        return isBest;
+    }
+
+    // Keeps the 3 fastest, returns true if it's the new best
+    private static boolean insertTime(List<Long> times, long timeMs) {
+        synchronized (times) {
+            boolean isBest = times.isEmpty() || timeMs < times.get(0);
             times.add(timeMs);
             Collections.sort(times);
             if (times.size() > 3) {
                 times.remove(times.size() - 1);
             }
+            return isBest;
         }
-        savePlayerRecords(uuid);
-        return isBest;
     }
 
     public void resetTrackLeaderboard(String trackName) {
-        records.remove(trackName.toLowerCase());
-        Path file = recordsDir.resolve(trackName.toLowerCase() + ".json");
-        ioExecutor.submit(() -> {
-            try {
-                Files.deleteIfExists(file);
-            } catch (IOException ignored) {}
-        });
+        dropLeaderboard(trackName.toLowerCase());
     }
 
-    public boolean deletePlayerRecord(String trackName, String playerName) {
-        List<TrackRecord> trackRecords = records.get(trackName.toLowerCase());
-        if (trackRecords == null) return false;
+    // Out of memory and the backend, the next look loads it again and finds it empty
+    private void dropLeaderboard(String key) {
+        records.remove(key);
+        players.removeTrack(key);
+        backend.resetRecords(key);
+        resetStandings(key);
+    }
 
+    /**
+     * Only meaningful once the leaderboard is ready, see {@link #loadLeaderboard}.
+     */
+    public boolean deletePlayerRecord(String trackName, String playerName) {
+        RankedLeaderboard board = getLeaderboard(trackName);
+        String key = trackName.toLowerCase();
         boolean removed = false;
+        for (UUID uuid : players.uuids(playerName)) {
+            removed |= removeRecord(key, board, uuid);
+        }
+        if (!removed) {
+            // The index is still being built, or couldn't read some board
+            TrackRecord found = board.findByName(playerName);
+            if (found != null) removed = removeRecord(key, board, found.getPlayerUUID());
+        }
+        return removed;
+    }
+
+    private boolean removeRecord(String key, RankedLeaderboard board, UUID uuid) {
+        if (board.remove(uuid) == null) return false;
+        backend.removeRecord(key, uuid);
+        players.remove(key, uuid);
+        updateStandings(key, uuid, board);
+        return true;
+    }
+
+    // --- Across tracks ---
+
+    /**
+     * One of a player's leaderboard entries.
+     * @param rank 1-based
+     */
+    public record Placement(String track, int rank, int total, TrackRecord record) {}
+
+    /**
+     * Every leaderboard entry for anyone going by this name, best rank first. Loads the boards
+     * they're on that aren't in memory and ranks them on the compute pool. Completes on the
+     * global region.
+     */
+    public CompletableFuture<List<Placement>> findPlacements(String playerName) {
+        return whenBoardsLoaded(playerName).thenCompose(ignored -> computePool.submit(ComputePool.Priority.INTERACTIVE, () -> {
+            List<Placement> placements = new ArrayList<>();
+            for (UUID uuid : players.uuids(playerName)) {
+                for (String track : players.tracks(uuid)) {
+                    RankedLeaderboard board = records.get(track);
+                    TrackRecord record = board == null ? null : board.get(uuid);
+                    if (record != null) placements.add(new Placement(track, board.rankOf(uuid), board.size(), record));
+                }
+            }
+            placements.sort(Comparator.comparingInt(Placement::rank).thenComparing(Placement::track));
+            return placements;
+        })).thenCompose(this::onGlobal);
+    }
+
+    /**
+     * Takes anyone going by this name off every leaderboard. The boards they're on are loaded
+     * first if they aren't in memory, the removals then go through the usual journal so each track is saved once on the
+     * next flush. Completes on the global region with the tracks they were removed from.
+     */
+    public CompletableFuture<List<String>> purgePlayer(String playerName) {
+        return whenBoardsLoaded(playerName).thenCompose(ignored -> {
+            CompletableFuture<List<String>> result = new CompletableFuture<>();
+            Scheduling.runGlobal(plugin, () -> {
+                Set<String> affected = new TreeSet<>();
+                for (UUID uuid : players.uuids(playerName)) {
+                    for (String track : players.tracks(uuid)) {
+                        RankedLeaderboard board = records.get(track);
+                        if (board != null && board.isReady() && removeRecord(track, board, uuid)) affected.add(track);
+                    }
+                }
+                result.complete(new ArrayList<>(affected));
+            });
+            return result;
+        });
+    }
+
+    // Every board anyone going by this name is on in memory, once the player index has seen all
+    // stored boards. The rest stay where they are.
+    private CompletableFuture<Void> whenBoardsLoaded(String playerName) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        playerIndexBuilt.whenComplete((built, indexError) -> Scheduling.runGlobal(plugin, () -> {
+            Set<String> boards = new HashSet<>();
+            for (UUID uuid : players.uuids(playerName)) {
+                boards.addAll(players.tracks(uuid));
+            }
+            CompletableFuture<?>[] loads = boards.stream().filter(tracks::containsKey).map(this::loadLeaderboard).toArray(CompletableFuture[]::new);
+            CompletableFuture.allOf(loads).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(null);
+                }
+            });
+        }));
+        return result;
+    }
+
+    private <T> CompletableFuture<T> onGlobal(T value) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Scheduling.runGlobal(plugin, () -> result.complete(value));
+        return result;
+    }
+
+    // --- Run history ---
+
+    /** UUID of whoever goes by this name on a leaderboard, null if nobody (or several) do. */
+    public UUID findPlayer(String playerName) {
+        Set<UUID> uuids = players.uuids(playerName);
+        return uuids.size() == 1 ? uuids.iterator().next() : null;
+    }
+
+    /** Null when history is turned off. */
+    public RunArchive getHistory() {
+        return history;
+    }
+
+    /**
+     * A finished track run, submitted or not: counted in the track's stats and archived.
+     */
+    public void recordRun(String trackName, RunArchive.Run run) {
+        Track track = getTrack(trackName);
+        if (track != null) {
+            track.getStats().add(run.timeMs());
+            markStatsDirty(trackName.toLowerCase(), track);
+        }
+        if (history != null) history.append(trackName, run);
+    }
+
+    /** A track run's timer started. */
+    public void recordAttempt(String trackName) {
+        Track track = getTrack(trackName);
+        if (track == null) return;
+        track.getStats().addAttempt();
+        markStatsDirty(trackName.toLowerCase(), track);
+    }
+
+    /**
+     * A player's latest runs on a track, newest first. Scanned on the compute pool, completes
+     * on the global region.
+     */
+    public CompletableFuture<List<RunArchive.Run>> recentRuns(String trackName, UUID uuid, int limit) {
+        if (history == null) return CompletableFuture.completedFuture(List.of());
+        return computePool.submit(ComputePool.Priority.INTERACTIVE, () -> {
+            ArrayDeque<RunArchive.Run> latest = new ArrayDeque<>(limit);
+            try {
+                history.scan(trackName, 0, run -> {
+                    if (!run.uuid().equals(uuid)) return true;
+                    if (latest.size() == limit) latest.removeFirst();
+                    latest.addLast(run);
+                    return true;
+                });
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            List<RunArchive.Run> runs = new ArrayList<>(latest);
+            Collections.reverse(runs);
+            return runs;
+        }).thenCompose(this::onGlobal);
+    }
+
+    // --- Import / export ---
+
+    public Path getExportDir() {
+        return plugin.getDataFolder().toPath().resolve("exports");
+    }
+
+    public Path getImportDir() {
+        return plugin.getDataFolder().toPath().resolve("imports");
+    }
+
+    /**
+     * Writes one track's leaderboard, or every track's if the name is null, to a new file in
+     * the exports folder. Completes on the IO thread.
+     */
+    public CompletableFuture<RecordTransfer.Exported> exportRecords(String trackName, RecordTransfer.Format format) {
+        List<String> keys = trackName == null ? new ArrayList<>(new TreeSet<>(tracks.keySet())) : List.of(trackName.toLowerCase());
+        Path file = getExportDir().resolve((trackName == null ? "all" : trackName.toLowerCase()) + "-"
+                + EXPORT_STAMP.format(LocalDateTime.now()) + "." + format.getExtension());
+        List<CompletableFuture<RankedLeaderboard>> loads = keys.stream().map(this::loadLeaderboard).toList();
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0])).thenApplyAsync(ignored -> {
+            Map<String, RankedLeaderboard> boards = new LinkedHashMap<>();
+            for (int i = 0; i < keys.size(); i++) {
+                boards.put(keys.get(i), loads.get(i).join());
+            }
+            try {
+                return new RecordTransfer.Exported(file, RecordTransfer.write(file, format, boards));
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, ioExecutor);
+    }
 
-        synchronized (trackRecords) {
-            Iterator<TrackRecord> it = trackRecords.iterator();
-            while (it.hasNext()) {
-                TrackRecord record = it.next();
-                if (record.getPlayerName().equalsIgnoreCase(playerName)) {
-                    it.remove();
-                    removed = true;
+    /**
+     * Merges a CSV or NDJSON file into the leaderboards, keeping each player's better time the
+     * same way a finished run does. Read on the IO thread a batch at a time, each batch merged
+     * on the global region before the next is read. Completes on the global region.
+     */
+    public CompletableFuture<RecordTransfer.Imported> importRecords(Path file) {
+        CompletableFuture<RecordTransfer.Imported> result = new CompletableFuture<>();
+        RecordTransfer.Format format = RecordTransfer.Format.of(file);
+        if (format == null) {
+            result.completeExceptionally(new IllegalArgumentException("Only .csv and .ndjson files can be imported"));
+            return result;
+        }
+        try {
+            ioExecutor.submit(() -> {
+                RecordTransfer.Reader reader;
+                try {
+                    reader = new RecordTransfer.Reader(file, format);
+                } catch (IOException e) {
+                    result.completeExceptionally(e);
+                    return;
+                }
+                importBatch(reader, new int[3], result);
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    // Runs on ioExecutor. counts is read, merged, unknown track.
+    private void importBatch(RecordTransfer.Reader reader, int[] counts, CompletableFuture<RecordTransfer.Imported> result) {
+        List<RecordTransfer.Entry> batch;
+        try {
+            batch = reader.next(RecordTransfer.BATCH);
+        } catch (IOException e) {
+            closeQuietly(reader);
+            result.completeExceptionally(e);
+            return;
+        }
+        if (batch.isEmpty()) {
+            closeQuietly(reader);
+            RecordTransfer.Imported imported = new RecordTransfer.Imported(counts[0] + reader.getSkipped(), counts[1], counts[2] + reader.getSkipped());
+            Scheduling.runGlobal(plugin, () -> result.complete(imported));
+            return;
+        }
+        Scheduling.runGlobal(plugin, () -> {
+            for (RecordTransfer.Entry entry : batch) {
+                counts[0]++;
+                if (!tracks.containsKey(entry.track())) {
+                    counts[2]++;
+                } else if (mergeRecord(entry.track(), getLeaderboard(entry.track()), entry.record())) {
+                    counts[1]++;
                 }
             }
+            try {
+                ioExecutor.submit(() -> importBatch(reader, counts, result));
+            } catch (RejectedExecutionException e) {
+                // Shutting down, what's merged so far gets saved with everything else
+                closeQuietly(reader);
+                result.completeExceptionally(e);
+            }
+        });
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {
         }
+    }
+
+    // --- Event standings ---
 
-        if (removed) {
-            saveRecordsForTrack(trackName);
+    /**
+     * The event's standings if they've been built, null otherwise, see {@link #buildStandings}.
+     */
+    public EventStandings getStandings(RaceEvent event) {
+        return standings.get(event.getName().toLowerCase());
+    }
+
+    /**
+     * Builds the event's standings on the compute pool. Every leaderboard of the event has to be
+     * ready, see {@link #loadLeaderboard}. Completes on the global region, or fails with
+     * {@link ComputePool.BusyException} when the pool is full.
+     */
+    public CompletableFuture<EventStandings> buildStandings(RaceEvent event) {
+        String key = event.getName().toLowerCase();
+        EventStandings existing = standings.get(key);
+        if (existing != null) return CompletableFuture.completedFuture(existing);
+
+        List<String> trackNames = List.copyOf(event.getTrackNames());
+        RaceEvent.ScoringType scoring = event.getScoringType();
+        Map<String, RankedLeaderboard> boards = new HashMap<>();
+        Map<String, Long> versions = new HashMap<>();
+        for (String trackName : trackNames) {
+            RankedLeaderboard board = getLeaderboard(trackName);
+            if (!board.isReady()) return CompletableFuture.failedFuture(new IllegalStateException("Leaderboard " + trackName + " isn't loaded"));
+            boards.put(trackName, board);
+            versions.put(trackName, board.getVersion());
         }
-        return removed;
+
+        CompletableFuture<EventStandings> result = new CompletableFuture<>();
+        computePool.submit(ComputePool.Priority.BULK, () -> new EventStandings(scoring, trackNames, pointsTable, boards))
+                .whenComplete((built, error) -> Scheduling.runGlobal(plugin, () -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                        return;
+                    }
+                    EventStandings current = standings.get(key);
+                    if (current != null) {
+                        result.complete(current);
+                        return;
+                    }
+                    EventStandings installed = built;
+                    if (!trackNames.equals(event.getTrackNames()) || !unchanged(boards, versions)) {
+                        // Something moved while it was building, rare enough to just redo it here
+                        Map<String, RankedLeaderboard> now = new HashMap<>();
+                        for (String trackName : event.getTrackNames()) {
+                            RankedLeaderboard board = getLeaderboard(trackName);
+                            if (!board.isReady()) {
+                                result.completeExceptionally(new IllegalStateException("Leaderboard " + trackName + " isn't loaded"));
+                                return;
+                            }
+                            now.put(trackName, board);
+                        }
+                        installed = new EventStandings(event, pointsTable, now);
+                    }
+                    standings.put(key, installed);
+                    result.complete(installed);
+                }));
+        return result;
     }
 
-    // --- Events ---
+    private boolean unchanged(Map<String, RankedLeaderboard> boards, Map<String, Long> versions) {
+        for (Map.Entry<String, RankedLeaderboard> entry : boards.entrySet()) {
+            RankedLeaderboard board = entry.getValue();
+            if (records.get(entry.getKey().toLowerCase()) != board || board.getVersion() != versions.get(entry.getKey())) return false;
+        }
+        return true;
+    }
 
-    private boolean loadEvents() {
-        if (!Files.exists(eventsFile)) return true;
-        try (Reader reader = Files.newBufferedReader(eventsFile, StandardCharsets.UTF_8)) {
-            Type type = new TypeToken<Map<String, RaceEvent>>() {}.getType();
-            Map<String, RaceEvent> loaded = gson.fromJson(reader, type);
-            if (loaded != null) {
-                events.putAll(loaded);
+    /**
+     * Call after changing an event's tracks, the standings get rebuilt on next use.
+     */
+    public void invalidateStandings(RaceEvent event) {
+        standings.remove(event.getName().toLowerCase());
+    }
+
+    private void updateStandings(String trackName, UUID uuid, RankedLeaderboard board) {
+        Iterator<EventStandings> it = standings.values().iterator();
+        while (it.hasNext()) {
+            EventStandings event = it.next();
+            if (!event.covers(trackName)) continue;
+            if (board.isReady()) {
+                event.update(trackName, uuid, board);
+            } else {
+                // Can't tell where they place until the rest of the board is in
+                it.remove();
             }
-            return true;
-        } catch (IOException | JsonSyntaxException e) {
-            logger.severe("Failed to load events: " + e.getMessage());
-            return false;
         }
     }
 
+    private void resetStandings(String trackName) {
+        for (EventStandings event : standings.values()) {
+            event.reset(trackName);
+        }
+    }
+
+    public List<Integer> getPointsTable() {
+        return pointsTable;
+    }
+
+    // --- Events ---
+
     public void saveEvents() {
-        // Serialize on main thread
-        String json = gson.toJson(events);
-        ioExecutor.submit(() -> saveFileSync(eventsFile, json));
+        // Snapshotted on main thread at the next flush
+        flushScheduler.markDirty("events", () -> {
+            var snapshot = gson.toJsonTree(events).getAsJsonObject();
+            return () -> backend.saveEvents(snapshot);
+        });
     }
 
     public Map<String, RaceEvent> getEvents() {
@@ -466,13 +1106,16 @@ public class DataStore {
 
     public void addEvent(RaceEvent event) {
         events.put(event.getName().toLowerCase(), event);
+        eventNames.add(event.getName().toLowerCase());
         saveEvents();
     }
 
     public RaceEvent removeEvent(String name) {
         RaceEvent removed = events.remove(name.toLowerCase());
         if (removed != null) {
+            eventNames.remove(name);
             saveEvents();
+            invalidateStandings(removed);
         }
         return removed;
     }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import world.ultravanilla.ultrastopwatch.model.RaceEvent;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.util.*;
+
+/**
+ * Ready-made standings for one event, updated per leaderboard change instead of being
+ * recomputed from every track on each query. Main thread only.
+ * <p>
+ * Total time ranks players who have a time on every track by the sum. Points ranks everyone
+ * with at least one time; only the top {@code pointsTable.size()} of a track score, so a
+ * change on a track only re-awards that many places.
+ */
+public class EventStandings {
+
+    /** @param score total ms for TOTAL_TIME, points for POINTS */
+    public record Standing(UUID uuid, String name, long score) {}
+
+    private static final class Player {
+        final UUID uuid;
+        String name;
+        final long[] times;
+        int tracksDone = 0;
+        long total = 0;
+        long points = 0;
+        Standing ranked;
+
+        Player(UUID uuid, int tracks) {
+            this.uuid = uuid;
+            this.times = new long[tracks];
+            Arrays.fill(times, -1);
+        }
+    }
+
+    private final RaceEvent.ScoringType scoring;
+    private final List<String> tracks;
+    private final List<Integer> pointsTable;
+    private final Map<UUID, Player> players = new HashMap<>();
+    // Per track, who currently holds a scoring place and how much it's worth
+    private final List<Map<UUID, Integer>> awarded = new ArrayList<>();
+    private final OrderStatisticTree<Standing> ranking;
+    // Bumped on every change, lets rendered copies tell they're stale
+    private long version;
+
+    /**
+     * @param boards every leaderboard of the event, all ready
+     */
+    public EventStandings(RaceEvent event, List<Integer> pointsTable, Map<String, RankedLeaderboard> boards) {
+        this(event.getScoringType(), List.copyOf(event.getTrackNames()), pointsTable, boards);
+    }
+
+    /**
+     * Doesn't touch the event itself, so it can be built off the global region.
+     */
+    public EventStandings(RaceEvent.ScoringType scoring, List<String> tracks, List<Integer> pointsTable, Map<String, RankedLeaderboard> boards) {
+        this.scoring = scoring;
+        this.tracks = List.copyOf(tracks);
+        this.pointsTable = pointsTable;
+        Comparator<Standing> byScore = Comparator.comparingLong(Standing::score);
+        if (scoring == RaceEvent.ScoringType.POINTS) byScore = byScore.reversed();
+        this.ranking = new OrderStatisticTree<>(byScore.thenComparing(Standing::uuid));
+
+        for (int i = 0; i < tracks.size(); i++) {
+            awarded.add(new HashMap<>());
+            RankedLeaderboard board = boards.get(tracks.get(i));
+            if (board == null) continue;
+            for (TrackRecord record : board.snapshot()) {
+                Player p = players.computeIfAbsent(record.getPlayerUUID(), k -> new Player(k, tracks.size()));
+                p.name = record.getPlayerName();
+                p.times[i] = record.getTimeMs();
+                p.tracksDone++;
+                p.total += record.getTimeMs();
+            }
+            if (scoring == RaceEvent.ScoringType.POINTS) {
+                for (Map.Entry<UUID, Integer> entry : topPlaces(board).entrySet()) {
+                    awarded.get(i).put(entry.getKey(), entry.getValue());
+                    players.get(entry.getKey()).points += entry.getValue();
+                }
+            }
+        }
+        for (Player p : players.values()) {
+            rank(p);
+        }
+    }
+
+    public boolean covers(String track) {
+        return tracks.contains(track);
+    }
+
+    /**
+     * The player's entry on {@code track} changed (new time or removed).
+     */
+    public void update(String track, UUID uuid, RankedLeaderboard board) {
+        int index = tracks.indexOf(track);
+        if (index < 0) return;
+        version++;
+        TrackRecord record = board.get(uuid);
+        Player p = players.get(uuid);
+        if (p == null) {
+            if (record == null) return;
+            p = new Player(uuid, tracks.size());
+            players.put(uuid, p);
+        }
+        unrank(p);
+        if (record != null) p.name = record.getPlayerName();
+        setTime(p, index, record == null ? -1 : record.getTimeMs());
+        rankOrDrop(p);
+        if (scoring == RaceEvent.ScoringType.POINTS) {
+            reaward(index, board);
+        }
+    }
+
+    /**
+     * Every entry on {@code track} is gone.
+     */
+    public void reset(String track) {
+        int index = tracks.indexOf(track);
+        if (index < 0) return;
+        version++;
+        awarded.get(index).forEach((uuid, points) -> players.get(uuid).points -= points);
+        awarded.get(index).clear();
+        for (Player p : new ArrayList<>(players.values())) {
+            unrank(p);
+            setTime(p, index, -1);
+            rankOrDrop(p);
+        }
+    }
+
+    public List<Standing> top(int limit) {
+        return ranking.range(0, limit);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public RaceEvent.ScoringType getScoring() {
+        return scoring;
+    }
+
+    /** Players with a time on at least one of the event's tracks. */
+    public int playerCount() {
+        return players.size();
+    }
+
+    private void setTime(Player p, int index, long time) {
+        long old = p.times[index];
+        if (old >= 0) {
+            p.tracksDone--;
+            p.total -= old;
+        }
+        if (time >= 0) {
+            p.tracksDone++;
+            p.total += time;
+        }
+        p.times[index] = time;
+    }
+
+    // Only the top few places of a track carry points, diff those and move whoever changed
+    private void reaward(int index, RankedLeaderboard board) {
+        Map<UUID, Integer> before = awarded.get(index);
+        Map<UUID, Integer> after = topPlaces(board);
+        Set<UUID> touched = new HashSet<>(before.keySet());
+        touched.addAll(after.keySet());
+        for (UUID uuid : touched) {
+            int delta = after.getOrDefault(uuid, 0) - before.getOrDefault(uuid, 0);
+            Player p = players.get(uuid);
+            if (delta == 0 || p == null) continue;
+            unrank(p);
+            p.points += delta;
+            rankOrDrop(p);
+        }
+        awarded.set(index, after);
+    }
+
+    private Map<UUID, Integer> topPlaces(RankedLeaderboard board) {
+        Map<UUID, Integer> places = new HashMap<>();
+        List<TrackRecord> top = board.top(pointsTable.size());
+        for (int i = 0; i < top.size(); i++) {
+            places.put(top.get(i).getPlayerUUID(), pointsTable.get(i));
+        }
+        return places;
+    }
+
+    private void unrank(Player p) {
+        if (p.ranked != null) {
+            ranking.remove(p.ranked);
+            p.ranked = null;
+        }
+    }
+
+    private void rankOrDrop(Player p) {
+        if (p.tracksDone == 0 && p.points == 0) {
+            players.remove(p.uuid);
+            return;
+        }
+        rank(p);
+    }
+
+    private void rank(Player p) {
+        if (scoring == RaceEvent.ScoringType.TOTAL_TIME) {
+            if (p.tracksDone < tracks.size()) return;
+            p.ranked = new Standing(p.uuid, p.name, p.total);
+        } else {
+            p.ranked = new Standing(p.uuid, p.name, p.points);
+        }
+        ranking.add(p.ranked);
+    }
+}
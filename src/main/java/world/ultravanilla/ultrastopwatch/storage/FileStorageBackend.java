@@ -0,0 +1,581 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.reflect.TypeToken;
+import world.ultravanilla.ultrastopwatch.model.RaceEvent;
+import world.ultravanilla.ultrastopwatch.model.Track;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * The original layout: tracks.json, events.json, one file per track leaderboard and one per
+ * player, plus the record journal that keeps per-finish writes small.
+ */
+public class FileStorageBackend implements StorageBackend {
+
+    private final Path dataDir;
+    private final Path tracksFile;
+    private final Path recordsDir;
+    private final Path playerRecordsDir;
+    private final Path eventsFile;
+    private final boolean binaryRecords;
+    private final String recordExtension;
+    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
+    private final Logger logger;
+    private final ExecutorService ioExecutor;
+    private final DataStore.Durability durability;
+    private final RecordJournal journal;
+    private final long journalCompactBytes;
+    private State state;
+
+    // Changed since the last compaction, snapshots for these are behind the journal
+    private final Set<String> dirtyTracks = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> dirtyPlayers = ConcurrentHashMap.newKeySet();
+    // Players who left / leaderboards unloaded before their snapshot could be written, IO thread only
+    private final Map<UUID, Map<String, List<Long>>> unsavedPlayers = new HashMap<>();
+    private final Map<String, List<TrackRecord>> unsavedTracks = new HashMap<>();
+
+    public FileStorageBackend(Path dataDir, Logger logger, ExecutorService ioExecutor, DataStore.Durability durability,
+                              boolean binaryRecords, long journalCompactBytes) {
+        this.dataDir = dataDir;
+        this.tracksFile = dataDir.resolve("tracks.json");
+        this.recordsDir = dataDir.resolve("records").resolve("tracks");
+        this.playerRecordsDir = dataDir.resolve("records").resolve("player");
+        this.eventsFile = dataDir.resolve("events.json");
+        this.binaryRecords = binaryRecords;
+        this.recordExtension = binaryRecords ? BinaryRecordFormat.EXTENSION : ".json";
+        this.logger = logger;
+        this.ioExecutor = ioExecutor;
+        this.durability = durability;
+        this.journal = new RecordJournal(dataDir.resolve("records").resolve("journal.log"));
+        this.journalCompactBytes = journalCompactBytes;
+    }
+
+    @Override
+    public boolean open(State state) {
+        this.state = state;
+        try {
+            Files.createDirectories(recordsDir);
+            Files.createDirectories(playerRecordsDir);
+        } catch (IOException e) {
+            logger.severe("Failed to create data directories: " + e.getMessage());
+            return false;
+        }
+        if (binaryRecords && !migrateToBinary()) return false;
+        return replayJournal();
+    }
+
+    // --- Atomic write helpers ---
+
+    private boolean saveFileSync(Path target, String json) {
+        return saveBytesSync(target, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private boolean saveBytesSync(Path target, byte[] data) {
+        Path tmpFile = target.resolveSibling(target.getFileName().toString() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.write(tmpFile, data);
+            Files.move(tmpFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.severe("Failed to save " + target.getFileName() + ": " + e.getMessage());
+            try { Files.deleteIfExists(tmpFile); } catch (IOException ignored) {}
+            return false;
+        }
+    }
+
+    private <T> T readJson(Path file, Type type) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return gson.fromJson(reader, type);
+        } catch (JsonSyntaxException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    // --- Tracks & events ---
+
+    @Override
+    public Map<String, Track> loadTracks() throws IOException {
+        if (!Files.exists(tracksFile)) return Map.of();
+        Map<String, Track> loaded = readJson(tracksFile, new TypeToken<Map<String, Track>>() {}.getType());
+        return loaded != null ? loaded : Map.of();
+    }
+
+    @Override
+    public Map<String, RaceEvent> loadEvents() throws IOException {
+        if (!Files.exists(eventsFile)) return Map.of();
+        Map<String, RaceEvent> loaded = readJson(eventsFile, new TypeToken<Map<String, RaceEvent>>() {}.getType());
+        return loaded != null ? loaded : Map.of();
+    }
+
+    @Override
+    public boolean saveTracks(JsonObject tracks) {
+        return saveFileSync(tracksFile, gson.toJson(tracks));
+    }
+
+    @Override
+    public boolean saveEvents(JsonObject events) {
+        return saveFileSync(eventsFile, gson.toJson(events));
+    }
+
+    // --- Records ---
+
+    private Path trackRecordFile(String trackName) {
+        return recordsDir.resolve(trackName.toLowerCase() + recordExtension);
+    }
+
+    private Path playerRecordFile(UUID uuid) {
+        return playerRecordsDir.resolve(uuid.toString() + recordExtension);
+    }
+
+    @Override
+    public Collection<String> listLeaderboards() throws IOException {
+        if (!Files.exists(recordsDir)) return List.of();
+        try (Stream<Path> files = Files.list(recordsDir)) {
+            return files.map(p -> p.getFileName().toString())
+                    .filter(name -> name.endsWith(recordExtension))
+                    .map(name -> name.substring(0, name.length() - recordExtension.length()))
+                    .toList();
+        }
+    }
+
+    @Override
+    public List<TrackRecord> loadRecords(String track) throws IOException {
+        List<TrackRecord> unsaved = unsavedTracks.get(track.toLowerCase());
+        if (unsaved != null) return unsaved;
+        Path file = trackRecordFile(track);
+        if (!Files.exists(file)) return List.of();
+        if (binaryRecords) {
+            return BinaryRecordFormat.readTrack(file);
+        }
+        List<TrackRecord> loaded = readJson(file, new TypeToken<List<TrackRecord>>() {}.getType());
+        return loaded != null ? loaded : List.of();
+    }
+
+    private boolean writeTrackSnapshot(String trackName, List<TrackRecord> snapshot) {
+        Path file = trackRecordFile(trackName);
+        if (snapshot == null || snapshot.isEmpty()) {
+            try {
+                Files.deleteIfExists(file);
+                return true;
+            } catch (IOException e) {
+                logger.warning("Failed to delete record file for track " + trackName + ": " + e.getMessage());
+                return false;
+            }
+        }
+        if (binaryRecords) {
+            return saveBytesSync(file, BinaryRecordFormat.encodeTrack(snapshot));
+        }
+        return saveFileSync(file, gson.toJson(snapshot));
+    }
+
+    @Override
+    public Map<String, List<Long>> loadPlayerRecords(UUID uuid) throws IOException {
+        // Back before their last snapshot made it to disk
+        Map<String, List<Long>> unsaved = unsavedPlayers.remove(uuid);
+        if (unsaved != null) return unsaved;
+        Path file = playerRecordFile(uuid);
+        if (!Files.exists(file)) return null;
+        if (binaryRecords) {
+            return BinaryRecordFormat.readPlayer(file);
+        }
+        return readJson(file, new TypeToken<Map<String, List<Long>>>() {}.getType());
+    }
+
+    public Collection<UUID> listPlayers() throws IOException {
+        if (!Files.exists(playerRecordsDir)) return List.of();
+        List<UUID> players = new ArrayList<>();
+        try (Stream<Path> files = Files.list(playerRecordsDir)) {
+            for (Path p : files.toList()) {
+                String name = p.getFileName().toString();
+                if (!name.endsWith(recordExtension)) continue;
+                try {
+                    players.add(UUID.fromString(name.substring(0, name.length() - recordExtension.length())));
+                } catch (IllegalArgumentException ignored) {}
+            }
+        }
+        return players;
+    }
+
+    private boolean savePlayerRecordsSnapshot(UUID uuid, Map<String, List<Long>> records) {
+        Map<String, List<Long>> snapshot = new HashMap<>();
+        for (Map.Entry<String, List<Long>> entry : records.entrySet()) {
+            synchronized (entry.getValue()) {
+                snapshot.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+            }
+        }
+        Path file = playerRecordFile(uuid);
+        if (binaryRecords) {
+            return saveBytesSync(file, BinaryRecordFormat.encodePlayer(snapshot));
+        }
+        return saveFileSync(file, gson.toJson(snapshot));
+    }
+
+    @Override
+    public void playerUnloaded(UUID uuid, Map<String, List<Long>> records) {
+        if (!dirtyPlayers.remove(uuid)) return;
+        if (!savePlayerRecordsSnapshot(uuid, records)) {
+            // Journal still has it, let the next compaction pick it up again
+            unsavedPlayers.put(uuid, records);
+            dirtyPlayers.add(uuid);
+        }
+    }
+
+    @Override
+    public void trackUnloaded(String track, List<TrackRecord> records) {
+        if (!dirtyTracks.remove(track)) return;
+        if (writeTrackSnapshot(track, records)) {
+            unsavedTracks.remove(track);
+        } else {
+            unsavedTracks.put(track, records);
+            dirtyTracks.add(track);
+        }
+    }
+
+    @Override
+    public void putRecord(String track, TrackRecord record) {
+        dirtyTracks.add(track);
+        appendJournal(RecordJournal.Entry.put(track, record.getPlayerUUID(), record.getPlayerName(), record.getTimeMs(), record.getTimestamp()));
+    }
+
+    @Override
+    public void removeRecord(String track, UUID uuid) {
+        dirtyTracks.add(track);
+        appendJournal(RecordJournal.Entry.remove(track, uuid));
+    }
+
+    @Override
+    public void resetRecords(String track) {
+        // DataStore drops the board, so compaction and loads go by an empty unsaved copy until
+        // the file is deleted. Queued behind any unload of the old board, which may have
+        // written it out and cleared the dirty mark in the meantime.
+        dirtyTracks.add(track);
+        appendJournal(RecordJournal.Entry.reset(track));
+        Runnable emptied = () -> {
+            unsavedTracks.put(track, List.of());
+            dirtyTracks.add(track);
+        };
+        if (ioExecutor.isShutdown()) {
+            emptied.run();
+        } else {
+            ioExecutor.submit(emptied);
+        }
+    }
+
+    @Override
+    public void putPlayerTimes(UUID uuid, String track, List<Long> times) {
+        dirtyPlayers.add(uuid);
+        appendJournal(RecordJournal.Entry.player(track, uuid, times));
+    }
+
+    // --- Binary migration ---
+    // One-shot: converts any JSON record files left from before storage.format was switched,
+    // originals are moved to records/json-backup rather than deleted.
+
+    private boolean migrateToBinary() {
+        Path backupDir = dataDir.resolve("records").resolve("json-backup");
+        Type trackType = new TypeToken<List<TrackRecord>>() {}.getType();
+        Type playerType = new TypeToken<Map<String, List<Long>>>() {}.getType();
+        int tracksMigrated = 0;
+        int playersMigrated = 0;
+        long jsonBytes = 0;
+        long binaryBytes = 0;
+        try {
+            for (Path json : listJson(recordsDir)) {
+                List<TrackRecord> loaded = readJson(json, trackType);
+                // Same dedupe + ordering as a normal load
+                RankedLeaderboard board = new RankedLeaderboard();
+                if (loaded != null) loaded.forEach(board::submit);
+                byte[] data = BinaryRecordFormat.encodeTrack(board.snapshot());
+                if (!migrateFile(json, withExtension(json, BinaryRecordFormat.EXTENSION), data, backupDir.resolve("tracks"))) return false;
+                jsonBytes += Files.size(backupDir.resolve("tracks").resolve(json.getFileName()));
+                binaryBytes += data.length;
+                tracksMigrated++;
+            }
+            for (Path json : listJson(playerRecordsDir)) {
+                Map<String, List<Long>> loaded = readJson(json, playerType);
+                byte[] data = BinaryRecordFormat.encodePlayer(loaded != null ? loaded : Map.of());
+                if (!migrateFile(json, withExtension(json, BinaryRecordFormat.EXTENSION), data, backupDir.resolve("player"))) return false;
+                jsonBytes += Files.size(backupDir.resolve("player").resolve(json.getFileName()));
+                binaryBytes += data.length;
+                playersMigrated++;
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to migrate records to binary: " + e.getMessage());
+            return false;
+        }
+        if (tracksMigrated + playersMigrated > 0) {
+            logger.info("Migrated " + tracksMigrated + " track and " + playersMigrated + " player record files to binary ("
+                    + (jsonBytes / 1024) + " KB -> " + (binaryBytes / 1024) + " KB). JSON originals are in records/json-backup.");
+        }
+        return true;
+    }
+
+    private boolean migrateFile(Path json, Path target, byte[] data, Path backupDir) throws IOException {
+        if (!saveBytesSync(target, data)) return false;
+        Files.createDirectories(backupDir);
+        Files.move(json, backupDir.resolve(json.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    private static List<Path> listJson(Path dir) throws IOException {
+        if (!Files.exists(dir)) return List.of();
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".json")).toList();
+        }
+    }
+
+    private static Path withExtension(Path file, String extension) {
+        String name = file.getFileName().toString();
+        return file.resolveSibling(name.substring(0, name.length() - 5) + extension);
+    }
+
+    // --- Journal ---
+    // Record changes go to the journal instead of rewriting whole files, the compactor
+    // folds them into the snapshot files once the journal gets big enough.
+
+    // Folds a leftover journal straight into the snapshot files before anything is loaded
+    private boolean replayJournal() {
+        Map<String, RankedLeaderboard> boards = new HashMap<>();
+        Map<UUID, Map<String, List<Long>>> playerUpdates = new HashMap<>();
+        int replayed;
+        try {
+            journal.open();
+            replayed = journal.replay(entry -> {
+                if (entry.track() == null) return;
+                String key = entry.track().toLowerCase();
+                switch (entry.op()) {
+                    case PUT -> boardFor(boards, key).submit(new TrackRecord(entry.uuid(), entry.name(), entry.time(), entry.timestamp()));
+                    case REMOVE -> boardFor(boards, key).remove(entry.uuid());
+                    case RESET -> boards.put(key, new RankedLeaderboard());
+                    case PLAYER -> playerUpdates.computeIfAbsent(entry.uuid(), k -> new HashMap<>()).put(key, entry.times());
+                }
+            });
+        } catch (IOException | RuntimeException e) {
+            logger.severe("Failed to replay record journal: " + e.getMessage());
+            return false;
+        }
+        if (replayed == 0) return true;
+
+        boolean ok = true;
+        for (Map.Entry<String, RankedLeaderboard> entry : boards.entrySet()) {
+            ok &= writeTrackSnapshot(entry.getKey(), entry.getValue().snapshot());
+        }
+        for (Map.Entry<UUID, Map<String, List<Long>>> entry : playerUpdates.entrySet()) {
+            Map<String, List<Long>> pRecords;
+            try {
+                pRecords = loadPlayerRecords(entry.getKey());
+            } catch (IOException e) {
+                logger.severe("Failed to load player records for " + entry.getKey() + ": " + e.getMessage());
+                return false;
+            }
+            pRecords = pRecords == null ? new HashMap<>() : new HashMap<>(pRecords);
+            pRecords.putAll(entry.getValue());
+            ok &= savePlayerRecordsSnapshot(entry.getKey(), pRecords);
+        }
+        if (!ok) {
+            logger.severe("Failed to fold record journal into snapshots.");
+            return false;
+        }
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            logger.severe("Failed to truncate record journal: " + e.getMessage());
+            return false;
+        }
+        logger.info("Replayed " + replayed + " record journal entries.");
+        return true;
+    }
+
+    // Starts from the snapshot on disk the first time a track shows up in the journal
+    private RankedLeaderboard boardFor(Map<String, RankedLeaderboard> boards, String track) {
+        return boards.computeIfAbsent(track, k -> {
+            RankedLeaderboard board = new RankedLeaderboard();
+            try {
+                loadRecords(k).forEach(board::submit);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to load records for track " + k + ": " + e.getMessage(), e);
+            }
+            return board;
+        });
+    }
+
+    private void appendJournal(RecordJournal.Entry entry) {
+        // Only the first entry of a batch schedules a flush, the rest ride along on the same fsync.
+        // Batched mode leaves it to the flush tick.
+        if (journal.append(entry) && durability == DataStore.Durability.IMMEDIATE && !ioExecutor.isShutdown()) {
+            ioExecutor.submit(this::flushJournal);
+        }
+    }
+
+    @Override
+    public void tick() {
+        if (journal.hasPending() && !ioExecutor.isShutdown()) {
+            ioExecutor.submit(this::flushJournal);
+        }
+    }
+
+    private void flushJournal() {
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            logger.severe("Failed to write record journal: " + e.getMessage());
+            return;
+        }
+        if (journal.size() >= journalCompactBytes) {
+            compactJournal();
+        }
+    }
+
+    // Runs on ioExecutor
+    private void compactJournal() {
+        boolean ok = true;
+        for (String trackName : drain(dirtyTracks)) {
+            List<TrackRecord> snapshot = trackSnapshot(trackName);
+            if (snapshot != null && writeTrackSnapshot(trackName, snapshot)) {
+                unsavedTracks.remove(trackName);
+            } else {
+                // Still loading, keep it and the journal for next time
+                dirtyTracks.add(trackName);
+                ok = false;
+            }
+        }
+        for (UUID uuid : drain(dirtyPlayers)) {
+            Map<String, List<Long>> pRecords = state.playerRecords(uuid);
+            if (pRecords == null) pRecords = unsavedPlayers.get(uuid);
+            if (pRecords == null) {
+                // Evicted, and their playerUnloaded is still queued behind this. Only the
+                // journal has their times until it runs.
+                dirtyPlayers.add(uuid);
+                ok = false;
+                continue;
+            }
+            if (savePlayerRecordsSnapshot(uuid, pRecords)) {
+                unsavedPlayers.remove(uuid);
+            } else {
+                dirtyPlayers.add(uuid);
+                ok = false;
+            }
+        }
+        if (!ok) {
+            logger.warning("Journal compaction incomplete, keeping the journal until the next attempt.");
+            return;
+        }
+        try {
+            journal.truncate();
+        } catch (IOException e) {
+            logger.warning("Failed to truncate record journal: " + e.getMessage());
+        }
+    }
+
+    private List<TrackRecord> trackSnapshot(String trackName) {
+        List<TrackRecord> snapshot = state.trackRecords(trackName);
+        return snapshot != null ? snapshot : unsavedTracks.get(trackName);
+    }
+
+    private static <T> List<T> drain(Set<T> set) {
+        List<T> batch = new ArrayList<>(set);
+        batch.forEach(set::remove);
+        return batch;
+    }
+
+    // --- Shutdown ---
+
+    @Override
+    public void close(boolean save) {
+        if (!save) {
+            closeJournal();
+            return;
+        }
+        // On disk before anything else, if a snapshot below fails the journal is all there is
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            logger.severe("Failed to write record journal: " + e.getMessage());
+        }
+        boolean ok = true;
+        for (String trackName : state.leaderboards()) {
+            List<TrackRecord> snapshot = state.trackRecords(trackName);
+            if (snapshot != null && !snapshot.isEmpty()) {
+                ok &= writeTrackSnapshot(trackName, snapshot);
+            }
+        }
+        for (UUID uuid : state.loadedPlayers()) {
+            Map<String, List<Long>> pRecords = state.playerRecords(uuid);
+            if (pRecords != null && !pRecords.isEmpty()) {
+                ok &= savePlayerRecordsSnapshot(uuid, pRecords);
+            }
+        }
+        for (Map.Entry<UUID, Map<String, List<Long>>> entry : unsavedPlayers.entrySet()) {
+            ok &= savePlayerRecordsSnapshot(entry.getKey(), entry.getValue());
+        }
+        for (String trackName : drain(dirtyTracks)) {
+            // Unloaded, reset or emptied since the last compaction
+            List<TrackRecord> snapshot = trackSnapshot(trackName);
+            if (snapshot == null) {
+                ok = false;
+            } else if (snapshot.isEmpty() || !state.leaderboards().contains(trackName)) {
+                ok &= writeTrackSnapshot(trackName, snapshot);
+            }
+        }
+
+        // Snapshots now cover everything, unless a write failed in which case replay it next start
+        if (ok) {
+            try {
+                journal.truncate();
+            } catch (IOException e) {
+                logger.warning("Failed to truncate record journal: " + e.getMessage());
+            }
+        }
+        closeJournal();
+    }
+
+    private void closeJournal() {
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.severe("Failed to write record journal: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public Map<String, String> stats() {
+        Map<String, String> stats = new LinkedHashMap<>();
+        stats.put("Backend", "files (" + (binaryRecords ? "binary" : "json") + ")");
+        stats.put("Journal", (journal.size() / 1024) + " KB, " + (dirtyTracks.size() + dirtyPlayers.size()) + " uncompacted");
+        return stats;
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces saves. Callers mark something dirty as often as they like; on each flush every
+ * dirty entry is snapshotted once (main thread) and the resulting write is handed to the IO
+ * thread. If an older write for the same key is still waiting, it is replaced, so the latest
+ * snapshot always wins. A write that fails goes out again on the next flush, unless a newer
+ * snapshot of the same key has come along by then.
+ */
+public class FlushScheduler {
+
+    private final ExecutorService ioExecutor;
+    private final int maxQueued;
+
+    // Main thread only. Snapshot supplier -> write to run on the IO thread, true on success
+    private final Map<String, Supplier<BooleanSupplier>> dirty = new LinkedHashMap<>();
+
+    // Shared with the IO thread, guarded by itself
+    private final Map<String, BooleanSupplier> queued = new LinkedHashMap<>();
+    // Writes that failed, queued again on the next flush unless a newer snapshot beat them to
+    // it. Guarded by queued.
+    private final Map<String, BooleanSupplier> failedWrites = new LinkedHashMap<>();
+    private boolean drainScheduled = false;
+
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private volatile int highWater = 0;
+
+    public FlushScheduler(ExecutorService ioExecutor, int maxQueued) {
+        this.ioExecutor = ioExecutor;
+        this.maxQueued = Math.max(1, maxQueued);
+    }
+
+    public void markDirty(String key, Supplier<BooleanSupplier> snapshot) {
+        if (dirty.put(key, snapshot) != null) {
+            coalesced.incrementAndGet();
+        }
+    }
+
+    /**
+     * Snapshots every dirty entry and queues the writes. Entries that don't fit in the queue
+     * stay dirty for the next flush.
+     */
+    public void flushDirty() {
+        if (ioExecutor.isShutdown()) return;
+
+        boolean schedule = false;
+        Iterator<Map.Entry<String, Supplier<BooleanSupplier>>> it = dirty.entrySet().iterator();
+        synchronized (queued) {
+            if (dirty.isEmpty() && failedWrites.isEmpty()) return;
+            while (it.hasNext()) {
+                Map.Entry<String, Supplier<BooleanSupplier>> entry = it.next();
+                String key = entry.getKey();
+                boolean replacing = queued.containsKey(key);
+                if (!replacing && queued.size() >= maxQueued) {
+                    deferred.incrementAndGet();
+                    break;
+                }
+                queued.put(key, entry.getValue().get());
+                if (replacing) coalesced.incrementAndGet();
+                it.remove();
+            }
+            Iterator<Map.Entry<String, BooleanSupplier>> retries = failedWrites.entrySet().iterator();
+            while (retries.hasNext()) {
+                Map.Entry<String, BooleanSupplier> entry = retries.next();
+                String key = entry.getKey();
+                if (!queued.containsKey(key) && !dirty.containsKey(key)) {
+                    if (queued.size() >= maxQueued) break;
+                    queued.put(key, entry.getValue());
+                }
+                // Either retried now or a newer snapshot supersedes it
+                retries.remove();
+            }
+            highWater = Math.max(highWater, queued.size());
+            if (!drainScheduled && !queued.isEmpty()) {
+                drainScheduled = true;
+                schedule = true;
+            }
+        }
+        if (schedule) {
+            ioExecutor.submit(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            String key;
+            BooleanSupplier next;
+            synchronized (queued) {
+                Iterator<Map.Entry<String, BooleanSupplier>> it = queued.entrySet().iterator();
+                if (!it.hasNext()) {
+                    drainScheduled = false;
+                    return;
+                }
+                Map.Entry<String, BooleanSupplier> entry = it.next();
+                key = entry.getKey();
+                next = entry.getValue();
+                it.remove();
+            }
+            if (next.getAsBoolean()) {
+                written.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+                synchronized (queued) {
+                    // Tried again next flush, unless a newer one got queued while this was writing
+                    if (!queued.containsKey(key)) failedWrites.put(key, next);
+                }
+            }
+        }
+    }
+
+    public int getDirtyCount() {
+        return dirty.size();
+    }
+
+    public int getQueuedCount() {
+        synchronized (queued) {
+            return queued.size();
+        }
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getHighWater() {
+        return highWater;
+    }
+
+    public long getWritten() {
+        return written.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    public long getCoalesced() {
+        return coalesced.get();
+    }
+
+    public long getDeferred() {
+        return deferred.get();
+    }
+}
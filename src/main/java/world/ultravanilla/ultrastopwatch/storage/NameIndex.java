@@ -0,0 +1,106 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.util.*;
+
+/**
+ * Names kept sorted (case-insensitively) for tab completion, so a prefix is a binary search
+ * instead of a scan over everything. Changes copy the arrays, reads don't lock and are safe
+ * from any thread.
+ */
+public final class NameIndex {
+
+    // keys[i] is names[i] lowercased, both sorted by key
+    private record Snapshot(String[] keys, String[] names) {}
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new String[0]);
+
+    private volatile Snapshot snapshot = EMPTY;
+
+    /** Adds the name, or updates its spelling if it's already there. */
+    public synchronized void add(String name) {
+        Snapshot current = snapshot;
+        String key = name.toLowerCase();
+        int index = Arrays.binarySearch(current.keys(), key);
+        if (index >= 0) {
+            if (current.names()[index].equals(name)) return;
+            String[] names = current.names().clone();
+            names[index] = name;
+            snapshot = new Snapshot(current.keys(), names);
+            return;
+        }
+        int insert = -index - 1;
+        int length = current.keys().length;
+        String[] keys = new String[length + 1];
+        String[] names = new String[length + 1];
+        System.arraycopy(current.keys(), 0, keys, 0, insert);
+        System.arraycopy(current.names(), 0, names, 0, insert);
+        keys[insert] = key;
+        names[insert] = name;
+        System.arraycopy(current.keys(), insert, keys, insert + 1, length - insert);
+        System.arraycopy(current.names(), insert, names, insert + 1, length - insert);
+        snapshot = new Snapshot(keys, names);
+    }
+
+    /** Adds a batch with a single copy, for whole leaderboards at a time. */
+    public synchronized void addAll(Collection<String> added) {
+        if (added.isEmpty()) return;
+        Snapshot current = snapshot;
+        TreeMap<String, String> merged = new TreeMap<>();
+        for (int i = 0; i < current.keys().length; i++) {
+            merged.put(current.keys()[i], current.names()[i]);
+        }
+        for (String name : added) {
+            merged.put(name.toLowerCase(), name);
+        }
+        snapshot = new Snapshot(merged.keySet().toArray(new String[0]), merged.values().toArray(new String[0]));
+    }
+
+    public synchronized void remove(String name) {
+        Snapshot current = snapshot;
+        int index = Arrays.binarySearch(current.keys(), name.toLowerCase());
+        if (index < 0) return;
+        int length = current.keys().length;
+        String[] keys = new String[length - 1];
+        String[] names = new String[length - 1];
+        System.arraycopy(current.keys(), 0, keys, 0, index);
+        System.arraycopy(current.names(), 0, names, 0, index);
+        System.arraycopy(current.keys(), index + 1, keys, index, length - index - 1);
+        System.arraycopy(current.names(), index + 1, names, index, length - index - 1);
+        snapshot = new Snapshot(keys, names);
+    }
+
+    /**
+     * Up to {@code limit} names starting with the prefix, ignoring case, in order.
+     */
+    public String[] complete(String prefix, int limit) {
+        Snapshot current = snapshot;
+        String key = prefix.toLowerCase();
+        int from = Arrays.binarySearch(current.keys(), key);
+        if (from < 0) from = -from - 1;
+        int to = from;
+        while (to < current.keys().length && to - from < limit && current.keys()[to].startsWith(key)) to++;
+        return Arrays.copyOfRange(current.names(), from, to);
+    }
+
+    public int size() {
+        return snapshot.keys().length;
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Treap with subtree sizes, so rank and index lookups are O(log n).
+ * Elements must be unique under the comparator. Not thread-safe.
+ */
+public class OrderStatisticTree<E> implements Iterable<E> {
+
+    private static final class Node<E> {
+        final E value;
+        final int priority;
+        int size = 1;
+        Node<E> left, right;
+
+        Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private final Comparator<? super E> comparator;
+    private Node<E> root;
+    private int seed = 0x2545F491;
+
+    public OrderStatisticTree(Comparator<? super E> comparator) {
+        this.comparator = comparator;
+    }
+
+    public int size() {
+        return size(root);
+    }
+
+    public boolean isEmpty() {
+        return root == null;
+    }
+
+    public void clear() {
+        root = null;
+    }
+
+    public boolean contains(E value) {
+        Node<E> n = root;
+        while (n != null) {
+            int cmp = comparator.compare(value, n.value);
+            if (cmp == 0) return true;
+            n = cmp < 0 ? n.left : n.right;
+        }
+        return false;
+    }
+
+    public boolean add(E value) {
+        if (contains(value)) return false;
+        Node<E>[] parts = split(root, value, false);
+        root = merge(merge(parts[0], new Node<>(value, nextPriority())), parts[1]);
+        return true;
+    }
+
+    public boolean remove(E value) {
+        if (!contains(value)) return false;
+        Node<E>[] lower = split(root, value, false);
+        Node<E>[] upper = split(lower[1], value, true);
+        root = merge(lower[0], upper[1]);
+        return true;
+    }
+
+    /**
+     * Zero-based position of the element, or -1 if it is not in the tree.
+     */
+    public int indexOf(E value) {
+        int index = 0;
+        Node<E> n = root;
+        while (n != null) {
+            int cmp = comparator.compare(value, n.value);
+            if (cmp == 0) return index + size(n.left);
+            if (cmp < 0) {
+                n = n.left;
+            } else {
+                index += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Number of elements that sort strictly before the given value, whether or not it is present.
+     */
+    public int countLessThan(E value) {
+        int count = 0;
+        Node<E> n = root;
+        while (n != null) {
+            if (comparator.compare(value, n.value) <= 0) {
+                n = n.left;
+            } else {
+                count += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return count;
+    }
+
+    public E get(int index) {
+        if (index < 0 || index >= size()) throw new IndexOutOfBoundsException(index);
+        Node<E> n = root;
+        while (true) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                n = n.left;
+            } else if (index == leftSize) {
+                return n.value;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    /**
+     * In-order slice starting at {@code from}, at most {@code count} elements.
+     * Costs O(log n + count) no matter how deep into the tree the slice starts.
+     */
+    public List<E> range(int from, int count) {
+        List<E> out = new ArrayList<>(Math.max(0, Math.min(count, size() - from)));
+        if (count <= 0 || from < 0 || from >= size()) return out;
+
+        ArrayDeque<Node<E>> stack = seek(from);
+        while (out.size() < count && !stack.isEmpty()) {
+            Node<E> n = stack.pop();
+            out.add(n.value);
+            pushLeftSpine(stack, n.right);
+        }
+        return out;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+        pushLeftSpine(stack, root);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !stack.isEmpty();
+            }
+
+            @Override
+            public E next() {
+                if (stack.isEmpty()) throw new NoSuchElementException();
+                Node<E> n = stack.pop();
+                pushLeftSpine(stack, n.right);
+                return n.value;
+            }
+        };
+    }
+
+    // Stack of pending nodes such that popping yields the element at `index` first
+    private ArrayDeque<Node<E>> seek(int index) {
+        ArrayDeque<Node<E>> stack = new ArrayDeque<>();
+        Node<E> n = root;
+        while (n != null) {
+            int leftSize = size(n.left);
+            if (index < leftSize) {
+                stack.push(n);
+                n = n.left;
+            } else if (index == leftSize) {
+                stack.push(n);
+                break;
+            } else {
+                index -= leftSize + 1;
+                n = n.right;
+            }
+        }
+        return stack;
+    }
+
+    private static <E> void pushLeftSpine(ArrayDeque<Node<E>> stack, Node<E> n) {
+        while (n != null) {
+            stack.push(n);
+            n = n.left;
+        }
+    }
+
+    // Splits into (< value, >= value), or (<= value, > value) when inclusive
+    @SuppressWarnings("unchecked")
+    private Node<E>[] split(Node<E> n, E value, boolean inclusive) {
+        if (n == null) return new Node[]{null, null};
+        int cmp = comparator.compare(n.value, value);
+        boolean goesLeft = inclusive ? cmp <= 0 : cmp < 0;
+        if (goesLeft) {
+            Node<E>[] parts = split(n.right, value, inclusive);
+            n.right = parts[0];
+            update(n);
+            parts[0] = n;
+            return parts;
+        } else {
+            Node<E>[] parts = split(n.left, value, inclusive);
+            n.left = parts[1];
+            update(n);
+            parts[1] = n;
+            return parts;
+        }
+    }
+
+    private Node<E> merge(Node<E> a, Node<E> b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+    private static <E> void update(Node<E> n) {
+        n.size = 1 + size(n.left) + size(n.right);
+    }
+
+    private static int size(Node<?> n) {
+        return n == null ? 0 : n.size;
+    }
+
+    private int nextPriority() {
+        // xorshift, plenty random enough for balancing
+        int x = seed;
+        x ^= x << 13;
+        x ^= x >>> 17;
+        x ^= x << 5;
+        seed = x;
+        return x;
+    }
+}
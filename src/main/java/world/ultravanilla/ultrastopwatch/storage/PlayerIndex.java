@@ -0,0 +1,120 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.util.*;
+
+/**
+ * Who has a leaderboard entry where: any name they've been recorded under (any case) to UUIDs,
+ * and UUID to the tracks they're on. Every stored board is read into it once in the background after startup, boards
+ * loaded since keep it up to date, and unloading an idle one doesn't take its players out since
+ * their entries are still stored. Filled from the IO thread, so everything here is synchronized.
+ */
+final class PlayerIndex {
+
+    private static final class Entry {
+        // Every name they've been recorded under, boards keep whatever it was at the time
+        final Set<String> names = new HashSet<>(2);
+        final Set<String> tracks = new HashSet<>();
+    }
+
+    private final Map<UUID, Entry> byUuid = new HashMap<>();
+    private final Map<String, Set<UUID>> byName = new HashMap<>();
+    private final NameIndex names = new NameIndex();
+
+    synchronized void add(String track, TrackRecord record) {
+        Entry entry = byUuid.computeIfAbsent(record.getPlayerUUID(), uuid -> new Entry());
+        entry.tracks.add(track);
+        addName(record.getPlayerUUID(), entry, record.getPlayerName(), null);
+    }
+
+    synchronized void addAll(String track, Collection<TrackRecord> stored) {
+        // Completion names go in as one batch, a whole board one at a time would copy a lot
+        List<String> added = new ArrayList<>();
+        for (TrackRecord record : stored) {
+            Entry entry = byUuid.computeIfAbsent(record.getPlayerUUID(), uuid -> new Entry());
+            entry.tracks.add(track);
+            addName(record.getPlayerUUID(), entry, record.getPlayerName(), added);
+        }
+        names.addAll(added);
+    }
+
+    synchronized void remove(String track, UUID uuid) {
+        Entry entry = byUuid.get(uuid);
+        if (entry == null || !entry.tracks.remove(track) || !entry.tracks.isEmpty()) return;
+        byUuid.remove(uuid);
+        dropNames(uuid, entry);
+    }
+
+    /** After a leaderboard was reset or its track deleted. */
+    synchronized void removeTrack(String track) {
+        List<UUID> emptied = new ArrayList<>();
+        byUuid.forEach((uuid, entry) -> {
+            if (entry.tracks.remove(track) && entry.tracks.isEmpty()) emptied.add(uuid);
+        });
+        for (UUID uuid : emptied) {
+            dropNames(uuid, byUuid.remove(uuid));
+        }
+    }
+
+    /** Everyone who's gone by this name on a leaderboard, usually just the one. */
+    synchronized Set<UUID> uuids(String name) {
+        Set<UUID> uuids = byName.get(name.toLowerCase());
+        return uuids == null ? Set.of() : Set.copyOf(uuids);
+    }
+
+    synchronized Set<String> tracks(UUID uuid) {
+        Entry entry = byUuid.get(uuid);
+        return entry == null ? Set.of() : Set.copyOf(entry.tracks);
+    }
+
+    synchronized int size() {
+        return byUuid.size();
+    }
+
+    /** Names for tab completion. */
+    NameIndex names() {
+        return names;
+    }
+
+    // New completion names go into batch if given
+    private void addName(UUID uuid, Entry entry, String name, List<String> batch) {
+        if (name == null || !entry.names.add(name)) return;
+        byName.computeIfAbsent(name.toLowerCase(), k -> new HashSet<>(2)).add(uuid);
+        if (batch != null) {
+            batch.add(name);
+        } else {
+            names.add(name);
+        }
+    }
+
+    // Once they're on no board at all
+    private void dropNames(UUID uuid, Entry entry) {
+        for (String name : entry.names) {
+            String key = name.toLowerCase();
+            Set<UUID> holders = byName.get(key);
+            if (holders != null && holders.remove(uuid) && holders.isEmpty()) {
+                byName.remove(key);
+                names.remove(name);
+            }
+        }
+    }
+}
@@ -0,0 +1,130 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+/**
+ * Personal top times, least recently used first out. Online players are pinned and never
+ * evicted, so the size cap only applies to people who have logged off.
+ */
+public class PlayerRecordCache {
+
+    private final int maxSize;
+    private final BiConsumer<UUID, Map<String, List<Long>>> onEvict;
+    private final LinkedHashMap<UUID, Map<String, List<Long>>> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Set<UUID> pinned = new HashSet<>();
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    /**
+     * @param onEvict gets every entry that falls out, called with the cache locked so keep it short
+     */
+    public PlayerRecordCache(int maxSize, BiConsumer<UUID, Map<String, List<Long>>> onEvict) {
+        this.maxSize = Math.max(1, maxSize);
+        this.onEvict = onEvict;
+    }
+
+    /**
+     * Looks a player up for a prefetch, counting it as a hit or a miss.
+     */
+    public synchronized boolean lookup(UUID uuid) {
+        if (entries.get(uuid) != null) {
+            hits++;
+            return true;
+        }
+        misses++;
+        return false;
+    }
+
+    public synchronized Map<String, List<Long>> get(UUID uuid) {
+        return entries.get(uuid);
+    }
+
+    public synchronized Map<String, List<Long>> getOrCreate(UUID uuid) {
+        Map<String, List<Long>> records = entries.get(uuid);
+        if (records == null) {
+            records = new ConcurrentHashMap<>();
+            entries.put(uuid, records);
+            evictOverflow();
+        }
+        return records;
+    }
+
+    /**
+     * @return whatever is cached now, {@code records} unless something got there first
+     */
+    public synchronized Map<String, List<Long>> putIfAbsent(UUID uuid, Map<String, List<Long>> records) {
+        Map<String, List<Long>> existing = entries.putIfAbsent(uuid, records);
+        if (existing != null) return existing;
+        evictOverflow();
+        return records;
+    }
+
+    public synchronized void pin(UUID uuid) {
+        pinned.add(uuid);
+    }
+
+    public synchronized void unpin(UUID uuid) {
+        pinned.remove(uuid);
+        evictOverflow();
+    }
+
+    public synchronized List<UUID> keys() {
+        return new ArrayList<>(entries.keySet());
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<UUID, Map<String, List<Long>>>> it = entries.entrySet().iterator();
+        while (entries.size() > maxSize && it.hasNext()) {
+            Map.Entry<UUID, Map<String, List<Long>>> eldest = it.next();
+            if (pinned.contains(eldest.getKey())) continue;
+            it.remove();
+            evictions++;
+            onEvict.accept(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int pinnedCount() {
+        return pinned.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+}
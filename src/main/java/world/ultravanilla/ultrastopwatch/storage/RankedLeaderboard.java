@@ -0,0 +1,229 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * One best entry per player for a single track, kept in rank order.
+ * <p>
+ * A board made with {@link #loading()} starts empty and takes live changes straight away;
+ * the stored entries are folded in by {@link #completeLoad} once they've been read.
+ */
+public class RankedLeaderboard {
+
+    public enum Status {
+        LOADING,
+        READY,
+        FAILED
+    }
+
+    /**
+     * A slice of the board around one player.
+     * @param firstRank 1-based rank of the first entry
+     * @param rank the player's own rank
+     */
+    public record Window(int firstRank, int rank, List<TrackRecord> entries) {}
+
+    // (timeMs, timestamp) like TrackRecord, uuid breaks exact ties so entries stay unique. The
+    // uuid goes by its text, same as the SQL backend's index, so both rank ties the same way.
+    // Only reached on exact ties, so the toString doesn't matter.
+    static final Comparator<TrackRecord> ORDER = Comparator.<TrackRecord>naturalOrder()
+            .thenComparing(record -> record.getPlayerUUID().toString());
+
+    private final OrderStatisticTree<TrackRecord> ranking = new OrderStatisticTree<>(ORDER);
+    private final Map<UUID, TrackRecord> byPlayer = new HashMap<>();
+
+    private Status status = Status.READY;
+    private CompletableFuture<RankedLeaderboard> loaded = CompletableFuture.completedFuture(this);
+    // Removed before the stored entries arrived, so they must not come back with them
+    private Set<UUID> removedWhileLoading;
+    private volatile long lastAccess = System.currentTimeMillis();
+    // Bumped on every change, lets rendered copies tell they're stale
+    private long version;
+
+    /**
+     * Placeholder for a track whose stored entries are still being read.
+     */
+    public static RankedLeaderboard loading() {
+        RankedLeaderboard board = new RankedLeaderboard();
+        board.status = Status.LOADING;
+        board.loaded = new CompletableFuture<>();
+        board.removedWhileLoading = new HashSet<>();
+        return board;
+    }
+
+    /**
+     * Merges the stored entries in. Anything submitted while loading still competes best-wins.
+     */
+    public void completeLoad(Collection<TrackRecord> stored) {
+        CompletableFuture<RankedLeaderboard> done;
+        synchronized (this) {
+            for (TrackRecord record : stored) {
+                if (!removedWhileLoading.contains(record.getPlayerUUID())) {
+                    submit(record);
+                }
+            }
+            status = Status.READY;
+            removedWhileLoading = null;
+            done = loaded;
+        }
+        done.complete(this);
+    }
+
+    public void failLoad(Throwable cause) {
+        CompletableFuture<RankedLeaderboard> done;
+        synchronized (this) {
+            status = Status.FAILED;
+            done = loaded;
+        }
+        done.completeExceptionally(cause);
+    }
+
+    /**
+     * @return true if the last load failed and the caller should start another one
+     */
+    public synchronized boolean retryLoad() {
+        if (status != Status.FAILED) return false;
+        status = Status.LOADING;
+        loaded = new CompletableFuture<>();
+        return true;
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    public synchronized boolean isReady() {
+        return status == Status.READY;
+    }
+
+    /**
+     * Completes once the stored entries are in, right away for a board that's already ready.
+     */
+    public synchronized CompletableFuture<RankedLeaderboard> whenLoaded() {
+        return loaded;
+    }
+
+    public void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Keeps the record only if it beats the player's current entry.
+     * @return true if the leaderboard changed
+     */
+    public synchronized boolean submit(TrackRecord record) {
+        TrackRecord current = byPlayer.get(record.getPlayerUUID());
+        if (current != null) {
+            if (record.getTimeMs() >= current.getTimeMs()) return false;
+            ranking.remove(current);
+        }
+        byPlayer.put(record.getPlayerUUID(), record);
+        ranking.add(record);
+        version++;
+        return true;
+    }
+
+    public synchronized TrackRecord get(UUID uuid) {
+        return byPlayer.get(uuid);
+    }
+
+    public synchronized long getTime(UUID uuid) {
+        TrackRecord record = byPlayer.get(uuid);
+        return record == null ? -1 : record.getTimeMs();
+    }
+
+    /**
+     * @return 1-based rank of the player, or -1 if they have no entry
+     */
+    public synchronized int rankOf(UUID uuid) {
+        TrackRecord record = byPlayer.get(uuid);
+        if (record == null) return -1;
+        return ranking.indexOf(record) + 1;
+    }
+
+    public synchronized List<TrackRecord> top(int limit) {
+        return ranking.range(0, limit);
+    }
+
+    public synchronized List<TrackRecord> page(int offset, int limit) {
+        return ranking.range(offset, limit);
+    }
+
+    /**
+     * Up to {@code radius} entries either side of the player, shifted to stay the same size at
+     * the top and bottom of the board.
+     * @return null if they have no entry
+     */
+    public synchronized Window around(UUID uuid, int radius) {
+        TrackRecord record = byPlayer.get(uuid);
+        if (record == null) return null;
+        int index = ranking.indexOf(record);
+        int width = 2 * radius + 1;
+        int from = Math.max(0, Math.min(index - radius, ranking.size() - width));
+        return new Window(from + 1, index + 1, ranking.range(from, width));
+    }
+
+    /**
+     * Entry of a player by name, for players that aren't online. Looks at every entry.
+     */
+    public synchronized TrackRecord findByName(String playerName) {
+        for (TrackRecord record : byPlayer.values()) {
+            if (record.getPlayerName().equalsIgnoreCase(playerName)) return record;
+        }
+        return null;
+    }
+
+    public synchronized TrackRecord remove(UUID uuid) {
+        if (removedWhileLoading != null) removedWhileLoading.add(uuid);
+        TrackRecord removed = byPlayer.remove(uuid);
+        if (removed != null) {
+            ranking.remove(removed);
+            version++;
+        }
+        return removed;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    public synchronized int size() {
+        return byPlayer.size();
+    }
+
+    public synchronized boolean isEmpty() {
+        return byPlayer.isEmpty();
+    }
+
+    /**
+     * Copy of every entry, already in rank order.
+     */
+    public synchronized List<TrackRecord> snapshot() {
+        return ranking.range(0, ranking.size());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Append-only log of leaderboard and personal record changes, one JSON object per line.
+ * Appends are buffered in memory and written + fsynced together by {@link #flush()},
+ * so a burst of finishes shares a single fsync.
+ */
+public class RecordJournal {
+
+    public enum Op {
+        PUT,     // track leaderboard entry (best-wins)
+        REMOVE,  // track leaderboard entry removed
+        RESET,   // whole track leaderboard cleared
+        PLAYER   // a player's full top times for one track
+    }
+
+    public record Entry(Op op, String track, UUID uuid, String name, long time, long timestamp, List<Long> times) {
+
+        public static Entry put(String track, UUID uuid, String name, long time, long timestamp) {
+            return new Entry(Op.PUT, track, uuid, name, time, timestamp, null);
+        }
+
+        public static Entry remove(String track, UUID uuid) {
+            return new Entry(Op.REMOVE, track, uuid, null, 0, 0, null);
+        }
+
+        public static Entry reset(String track) {
+            return new Entry(Op.RESET, track, null, null, 0, 0, null);
+        }
+
+        public static Entry player(String track, UUID uuid, List<Long> times) {
+            return new Entry(Op.PLAYER, track, uuid, null, 0, 0, times);
+        }
+    }
+
+    private final Path file;
+    private final Gson gson = new Gson();
+    private final List<String> pending = new ArrayList<>();
+    private FileChannel channel;
+    private long size;
+
+    public RecordJournal(Path file) {
+        this.file = file;
+    }
+
+    public void open() throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        size = channel.size();
+    }
+
+    /**
+     * Queues an entry for the next flush.
+     * @return true if the buffer was empty, i.e. the caller should schedule a flush
+     */
+    public boolean append(Entry entry) {
+        String line = gson.toJson(entry) + "\n";
+        synchronized (pending) {
+            pending.add(line);
+            return pending.size() == 1;
+        }
+    }
+
+    /**
+     * Writes every buffered entry and forces them to disk. Call from the IO thread only.
+     */
+    public void flush() throws IOException {
+        List<String> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        StringBuilder sb = new StringBuilder();
+        for (String line : batch) {
+            sb.append(line);
+        }
+        ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes(StandardCharsets.UTF_8));
+        while (buf.hasRemaining()) {
+            size += channel.write(buf);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Drops everything already written. Only safe once the snapshots cover it.
+     */
+    public void truncate() throws IOException {
+        channel.truncate(0);
+        channel.force(true);
+        size = 0;
+    }
+
+    public boolean hasPending() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Writes anything still buffered, then closes.
+     */
+    public void close() throws IOException {
+        if (channel == null) return;
+        try {
+            flush();
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException ignored) {}
+            channel = null;
+        }
+    }
+
+    /**
+     * Feeds every entry to the consumer in order. A torn final line (crash mid-append) is skipped,
+     * anything else unreadable fails the replay.
+     * @return number of entries replayed
+     */
+    public int replay(Consumer<Entry> consumer) throws IOException {
+        if (!Files.exists(file)) return 0;
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                if (!line.isBlank()) {
+                    Entry entry;
+                    try {
+                        entry = gson.fromJson(line, Entry.class);
+                    } catch (JsonParseException e) {
+                        if (next == null) break;
+                        throw new IOException("Corrupt journal entry at line " + (count + 1) + ": " + e.getMessage(), e);
+                    }
+                    if (entry != null && entry.op() != null) {
+                        consumer.accept(entry);
+                        count++;
+                    }
+                }
+                line = next;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,231 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Leaderboard entries in and out of plain files, one record per line as CSV
+ * ({@code track,uuid,name,time_ms,timestamp}) or NDJSON. Exports hold one board's entries
+ * at a time, imports read a batch at a time. IO thread only.
+ */
+public final class RecordTransfer {
+
+    public enum Format {
+        CSV("csv"),
+        NDJSON("ndjson");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        /** By file extension, null if it's neither. */
+        public static Format of(Path file) {
+            String name = file.getFileName().toString().toLowerCase();
+            if (name.endsWith(".csv")) return CSV;
+            if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) return NDJSON;
+            return null;
+        }
+    }
+
+    public record Exported(Path file, int records) {}
+
+    /**
+     * @param merged entries that were new or faster than what the board had
+     * @param skipped unreadable lines and entries for tracks this server doesn't have
+     */
+    public record Imported(int read, int merged, int skipped) {}
+
+    record Entry(String track, TrackRecord record) {}
+
+    private static final String CSV_HEADER = "track,uuid,name,time_ms,timestamp";
+    // Entries per hop to the global region on import
+    static final int BATCH = 500;
+
+    private RecordTransfer() {}
+
+    /**
+     * Writes the boards (keyed by track) to the file in rank order. Each board is copied in one
+     * go, paging through it while records keep coming in could list a player twice or miss them.
+     */
+    static int write(Path file, Format format, Map<String, RankedLeaderboard> boards) throws IOException {
+        Files.createDirectories(file.getParent());
+        int written = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            JsonWriter json = null;
+            if (format == Format.CSV) {
+                out.write(CSV_HEADER);
+                out.newLine();
+            } else {
+                // One top-level object per line
+                json = new JsonWriter(out);
+                json.setLenient(true);
+            }
+            for (Map.Entry<String, RankedLeaderboard> board : boards.entrySet()) {
+                for (TrackRecord record : board.getValue().snapshot()) {
+                    if (json != null) {
+                        json.beginObject()
+                                .name("track").value(board.getKey())
+                                .name("uuid").value(record.getPlayerUUID().toString())
+                                .name("name").value(record.getPlayerName())
+                                .name("timeMs").value(record.getTimeMs())
+                                .name("timestamp").value(record.getTimestamp())
+                                .endObject();
+                    } else {
+                        out.write(csv(board.getKey()) + "," + record.getPlayerUUID() + "," + csv(record.getPlayerName())
+                                + "," + record.getTimeMs() + "," + record.getTimestamp());
+                    }
+                    out.newLine();
+                    written++;
+                }
+            }
+        }
+        return written;
+    }
+
+    private static String csv(String field) {
+        if (field == null) return "";
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0) return field;
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Reads a file a batch at a time, bad lines are counted and skipped.
+     */
+    static final class Reader implements Closeable {
+        private final BufferedReader in;
+        private final Format format;
+        private int skipped;
+
+        Reader(Path file, Format format) throws IOException {
+            this.in = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+            this.format = format;
+        }
+
+        /** Up to {@code max} entries, empty once the file is done. */
+        List<Entry> next(int max) throws IOException {
+            List<Entry> batch = new ArrayList<>(Math.min(max, BATCH));
+            String line;
+            while (batch.size() < max && (line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.equals(CSV_HEADER)) continue;
+                Entry entry;
+                try {
+                    entry = format == Format.CSV ? parseCsv(line) : parseJson(line);
+                } catch (IOException | IllegalArgumentException | IllegalStateException e) {
+                    entry = null;
+                }
+                if (entry == null) {
+                    skipped++;
+                } else {
+                    batch.add(entry);
+                }
+            }
+            return batch;
+        }
+
+        int getSkipped() {
+            return skipped;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static Entry parseCsv(String line) {
+        List<String> fields = new ArrayList<>(5);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        if (fields.size() < 4) return null;
+        long timestamp = fields.size() > 4 && !fields.get(4).isEmpty() ? Long.parseLong(fields.get(4)) : System.currentTimeMillis();
+        return entry(fields.get(0), UUID.fromString(fields.get(1)), fields.get(2), Long.parseLong(fields.get(3)), timestamp);
+    }
+
+    private static Entry parseJson(String line) throws IOException {
+        String track = null, name = null;
+        UUID uuid = null;
+        long timeMs = -1, timestamp = System.currentTimeMillis();
+        try (JsonReader json = new JsonReader(new StringReader(line))) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String key = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.skipValue();
+                    continue;
+                }
+                switch (key) {
+                    case "track" -> track = json.nextString();
+                    case "uuid" -> uuid = UUID.fromString(json.nextString());
+                    case "name" -> name = json.nextString();
+                    case "timeMs" -> timeMs = json.nextLong();
+                    case "timestamp" -> timestamp = json.nextLong();
+                    default -> json.skipValue();
+                }
+            }
+            json.endObject();
+        }
+        return uuid == null ? null : entry(track, uuid, name, timeMs, timestamp);
+    }
+
+    private static Entry entry(String track, UUID uuid, String name, long timeMs, long timestamp) {
+        if (track == null || track.isEmpty() || name == null || name.isEmpty() || timeMs <= 0) return null;
+        return new Entry(track.toLowerCase(), new TrackRecord(uuid, name, timeMs, timestamp));
+    }
+}
@@ -0,0 +1,324 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Every finished track run, not just the best ones. Runs are buffered per track and written
+ * out in batches as new segment files under {@code history/<track>/}, never rewritten, and
+ * whole segments are deleted once they're past the retention period.
+ * <p>
+ * A segment is a small plain header (run count, first and last timestamp, so scans can skip
+ * it) followed by deflated columns: a player dictionary, then player, time, timestamp
+ * (delta), lap count and the flattened lap splits, all as varints. Scans read one segment at a
+ * time. Appending is safe from any thread, flushing and pruning happen on the IO thread.
+ */
+public class RunArchive {
+
+    /**
+     * @param splits lap times, empty for single lap tracks
+     */
+    public record Run(UUID uuid, String name, long timeMs, long timestamp, long[] splits) {}
+
+    private static final int MAGIC = 0x55535748; // USWH
+    private static final int VERSION = 1;
+    // A track with this many waiting runs is written out without waiting for the interval
+    static final int MAX_BATCH = 1024;
+
+    private final Path dir;
+    private final Logger logger;
+    private final long retentionMillis;
+    private final Map<String, List<Run>> pending = new HashMap<>();
+    private int pendingCount;
+    private long segmentSeq;
+    private long written;
+
+    /**
+     * @param retentionMillis 0 keeps everything
+     */
+    public RunArchive(Path dir, Logger logger, long retentionMillis) {
+        this.dir = dir;
+        this.logger = logger;
+        this.retentionMillis = retentionMillis;
+    }
+
+    public synchronized void append(String track, Run run) {
+        pending.computeIfAbsent(track.toLowerCase(), k -> new ArrayList<>()).add(run);
+        pendingCount++;
+    }
+
+    /** True once some track has a full batch waiting. */
+    synchronized boolean hasFullBatch() {
+        for (List<Run> runs : pending.values()) {
+            if (runs.size() >= MAX_BATCH) return true;
+        }
+        return false;
+    }
+
+    public synchronized int getPendingCount() {
+        return pendingCount;
+    }
+
+    public synchronized long getWritten() {
+        return written;
+    }
+
+    /** Takes everything waiting, to hand to {@link #write}. */
+    synchronized Map<String, List<Run>> drain() {
+        Map<String, List<Run>> drained = new HashMap<>(pending);
+        pending.clear();
+        pendingCount = 0;
+        return drained;
+    }
+
+    /**
+     * Writes each track's runs as new segments, then drops expired ones. IO thread only.
+     */
+    void write(Map<String, List<Run>> runs) {
+        for (Map.Entry<String, List<Run>> entry : runs.entrySet()) {
+            List<Run> trackRuns = entry.getValue();
+            for (int from = 0; from < trackRuns.size(); from += MAX_BATCH) {
+                List<Run> batch = trackRuns.subList(from, Math.min(trackRuns.size(), from + MAX_BATCH));
+                try {
+                    writeSegment(entry.getKey(), batch);
+                    synchronized (this) {
+                        written += batch.size();
+                    }
+                } catch (IOException e) {
+                    logger.severe("Failed to write run history for " + entry.getKey() + ": " + e.getMessage());
+                    // This and the rest of the track's runs wait for the next write
+                    putBack(entry.getKey(), trackRuns.subList(from, trackRuns.size()));
+                    break;
+                }
+            }
+        }
+        prune();
+    }
+
+    // In front of anything appended since, so the next segment keeps them in order
+    private synchronized void putBack(String track, List<Run> runs) {
+        pending.computeIfAbsent(track, k -> new ArrayList<>()).addAll(0, runs);
+        pendingCount += runs.size();
+    }
+
+    private void writeSegment(String track, List<Run> runs) throws IOException {
+        Path trackDir = dir.resolve(track);
+        Files.createDirectories(trackDir);
+        long first = Long.MAX_VALUE, last = Long.MIN_VALUE;
+        Map<UUID, Integer> players = new LinkedHashMap<>();
+        Map<UUID, String> names = new HashMap<>();
+        for (Run run : runs) {
+            first = Math.min(first, run.timestamp());
+            last = Math.max(last, run.timestamp());
+            players.putIfAbsent(run.uuid(), players.size());
+            names.put(run.uuid(), run.name());
+        }
+
+        Path file = trackDir.resolve(String.format("%013d-%06d.seg", System.currentTimeMillis(), segmentSeq++ % 1_000_000));
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            writeSegment(tmp, runs, first, last, players, names);
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+            throw e;
+        }
+    }
+
+    private static void writeSegment(Path tmp, List<Run> runs, long first, long last, Map<UUID, Integer> players, Map<UUID, String> names) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(runs.size());
+            out.writeLong(first);
+            out.writeLong(last);
+            Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+            try {
+                DeflaterOutputStream deflated = new DeflaterOutputStream(out, deflater, 8192);
+                DataOutputStream body = new DataOutputStream(new BufferedOutputStream(deflated));
+                writeVarLong(body, players.size());
+                for (UUID uuid : players.keySet()) {
+                    body.writeLong(uuid.getMostSignificantBits());
+                    body.writeLong(uuid.getLeastSignificantBits());
+                    body.writeUTF(names.get(uuid) == null ? "" : names.get(uuid));
+                }
+                for (Run run : runs) writeVarLong(body, players.get(run.uuid()));
+                for (Run run : runs) writeVarLong(body, run.timeMs());
+                long previous = first;
+                for (Run run : runs) {
+                    writeVarLong(body, zigzag(run.timestamp() - previous));
+                    previous = run.timestamp();
+                }
+                for (Run run : runs) writeVarLong(body, run.splits().length);
+                for (Run run : runs) {
+                    for (long split : run.splits()) writeVarLong(body, split);
+                }
+                body.flush();
+                deflated.finish();
+            } finally {
+                deflater.end();
+            }
+        }
+    }
+
+    // A segment goes once its newest run is past the cutoff
+    private void prune() {
+        if (retentionMillis <= 0 || !Files.isDirectory(dir)) return;
+        long cutoff = System.currentTimeMillis() - retentionMillis;
+        try (Stream<Path> tracks = Files.list(dir)) {
+            for (Path trackDir : (Iterable<Path>) tracks::iterator) {
+                for (Path segment : segments(trackDir)) {
+                    try {
+                        if (readHeader(segment).last() < cutoff) Files.delete(segment);
+                    } catch (IOException e) {
+                        logger.warning("Couldn't check run history segment " + segment.getFileName() + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.warning("Couldn't prune run history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Every archived run on the track from {@code since} on that the filter accepts, oldest
+     * first, including ones still waiting to be written. Reads one segment at a time, any
+     * thread.
+     * @param visitor return false to stop early
+     */
+    public void scan(String track, long since, Predicate<Run> visitor) throws IOException {
+        String key = track.toLowerCase();
+        for (Path segment : segments(dir.resolve(key))) {
+            try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(segment)))) {
+                Header header = readHeader(in, segment);
+                if (header.last() < since) continue;
+                if (!readBody(in, header, since, visitor)) return;
+            } catch (IOException | RuntimeException e) {
+                // One bad file shouldn't hide the rest of the track's history
+                logger.warning("Skipping run history segment " + segment.getFileName() + ": " + e.getMessage());
+            }
+        }
+        List<Run> waiting;
+        synchronized (this) {
+            List<Run> runs = pending.get(key);
+            waiting = runs == null ? List.of() : new ArrayList<>(runs);
+        }
+        for (Run run : waiting) {
+            if (run.timestamp() >= since && !visitor.test(run)) return;
+        }
+    }
+
+    private record Header(int count, long first, long last) {}
+
+    private static List<Path> segments(Path trackDir) throws IOException {
+        if (!Files.isDirectory(trackDir)) return List.of();
+        try (Stream<Path> files = Files.list(trackDir)) {
+            // Names start with the write time, so this is oldest first
+            return files.filter(file -> file.getFileName().toString().endsWith(".seg")).sorted().toList();
+        }
+    }
+
+    private static Header readHeader(Path segment) throws IOException {
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(segment))) {
+            return readHeader(in, segment);
+        }
+    }
+
+    private static Header readHeader(DataInputStream in, Path segment) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a run history segment: " + segment.getFileName());
+        }
+        return new Header(in.readInt(), in.readLong(), in.readLong());
+    }
+
+    private static boolean readBody(DataInputStream raw, Header header, long since, Predicate<Run> visitor) throws IOException {
+        Inflater inflater = new Inflater();
+        try {
+            return readColumns(new DataInputStream(new BufferedInputStream(new InflaterInputStream(raw, inflater))), header, since, visitor);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static boolean readColumns(DataInputStream in, Header header, long since, Predicate<Run> visitor) throws IOException {
+        int count = header.count();
+        int playerCount = (int) readVarLong(in);
+        UUID[] uuids = new UUID[playerCount];
+        String[] names = new String[playerCount];
+        for (int i = 0; i < playerCount; i++) {
+            uuids[i] = new UUID(in.readLong(), in.readLong());
+            names[i] = in.readUTF();
+        }
+        int[] player = new int[count];
+        long[] time = new long[count];
+        long[] timestamp = new long[count];
+        int[] laps = new int[count];
+        for (int i = 0; i < count; i++) player[i] = (int) readVarLong(in);
+        for (int i = 0; i < count; i++) time[i] = readVarLong(in);
+        long previous = header.first();
+        for (int i = 0; i < count; i++) {
+            previous += unzigzag(readVarLong(in));
+            timestamp[i] = previous;
+        }
+        for (int i = 0; i < count; i++) laps[i] = (int) readVarLong(in);
+        for (int i = 0; i < count; i++) {
+            long[] splits = new long[laps[i]];
+            for (int j = 0; j < splits.length; j++) splits[j] = readVarLong(in);
+            if (timestamp[i] < since) continue;
+            if (!visitor.test(new Run(uuids[player[i]], names[player[i]], time[i], timestamp[i], splits))) return false;
+        }
+        return true;
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+}
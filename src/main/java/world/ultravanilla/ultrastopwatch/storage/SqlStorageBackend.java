@@ -0,0 +1,561 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonSyntaxException;
+import world.ultravanilla.ultrastopwatch.model.RaceEvent;
+import world.ultravanilla.ultrastopwatch.model.Track;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Logger;
+
+/**
+ * Everything in one SQLite database (the driver ships with the server). Record changes are
+ * queued and committed together in one transaction on the IO thread; top-N, rank and
+ * per-player lookups go straight to the index.
+ */
+public class SqlStorageBackend implements StorageBackend {
+
+    @FunctionalInterface
+    private interface Op {
+        void apply(Connection connection) throws SQLException;
+    }
+
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS tracks (name TEXT PRIMARY KEY, data TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS events (name TEXT PRIMARY KEY, data TEXT NOT NULL)",
+            "CREATE TABLE IF NOT EXISTS records (track TEXT NOT NULL, uuid TEXT NOT NULL, name TEXT,"
+                    + " time_ms INTEGER NOT NULL, ts INTEGER NOT NULL, PRIMARY KEY (track, uuid))",
+            "CREATE INDEX IF NOT EXISTS records_rank ON records (track, time_ms, ts, uuid)",
+            "CREATE TABLE IF NOT EXISTS player_times (uuid TEXT NOT NULL, track TEXT NOT NULL,"
+                    + " t1 INTEGER, t2 INTEGER, t3 INTEGER, PRIMARY KEY (uuid, track))"
+    };
+    private static final int PLAYER_SLOTS = 3;
+    // After this many failed commits of the whole queue, its changes are tried one by one
+    private static final int MAX_FAILED_DRAINS = 3;
+
+    private final Path dbFile;
+    private final Logger logger;
+    private final ExecutorService ioExecutor;
+    private final DataStore.Durability durability;
+    private final FileStorageBackend importFrom;
+    private final Gson gson = new Gson();
+    private Connection connection;
+
+    // Guarded by itself
+    private final List<Op> pending = new ArrayList<>();
+    // Failed commits of the queue in a row, IO thread only
+    private int failedDrains;
+    private volatile long droppedOps;
+
+    /**
+     * @param importFrom file store to copy from the first time the database is created, or null
+     */
+    public SqlStorageBackend(Path dataDir, Logger logger, ExecutorService ioExecutor, DataStore.Durability durability,
+                             FileStorageBackend importFrom) {
+        this.dbFile = dataDir.resolve("ultrastopwatch.db");
+        this.logger = logger;
+        this.ioExecutor = ioExecutor;
+        this.durability = durability;
+        this.importFrom = importFrom;
+    }
+
+    @Override
+    public boolean open(State state) {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            logger.severe("SQLite driver not found, use storage.backend: file on this server.");
+            return false;
+        }
+        try {
+            Files.createDirectories(dbFile.getParent());
+            connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.toAbsolutePath());
+            try (Statement st = connection.createStatement()) {
+                st.execute("PRAGMA journal_mode=WAL");
+                st.execute("PRAGMA synchronous=" + (durability == DataStore.Durability.IMMEDIATE ? "FULL" : "NORMAL"));
+                for (String sql : SCHEMA) {
+                    st.execute(sql);
+                }
+            }
+        } catch (IOException | SQLException e) {
+            logger.severe("Failed to open " + dbFile.getFileName() + ": " + e.getMessage());
+            return false;
+        }
+        return importFrom == null || importFiles();
+    }
+
+    // --- First-run import ---
+
+    private boolean importFiles() {
+        try {
+            if (count("SELECT COUNT(*) FROM tracks") > 0 || count("SELECT COUNT(*) FROM records") > 0) return true;
+        } catch (SQLException e) {
+            logger.severe("Failed to query " + dbFile.getFileName() + ": " + e.getMessage());
+            return false;
+        }
+        if (!importFrom.open(emptyState())) return false;
+        int tracks = 0;
+        int records = 0;
+        int players = 0;
+        try {
+            Map<String, Track> loadedTracks = importFrom.loadTracks();
+            Map<String, RaceEvent> loadedEvents = importFrom.loadEvents();
+            if (!loadedTracks.isEmpty() && !saveTracks(gson.toJsonTree(loadedTracks).getAsJsonObject())) return false;
+            if (!loadedEvents.isEmpty() && !saveEvents(gson.toJsonTree(loadedEvents).getAsJsonObject())) return false;
+            tracks = loadedTracks.size();
+
+            for (String track : importFrom.listLeaderboards()) {
+                RankedLeaderboard board = new RankedLeaderboard();
+                importFrom.loadRecords(track).forEach(board::submit);
+                for (TrackRecord record : board.snapshot()) {
+                    putRecord(track, record);
+                    records++;
+                }
+            }
+            for (UUID uuid : importFrom.listPlayers()) {
+                Map<String, List<Long>> times = importFrom.loadPlayerRecords(uuid);
+                if (times == null) continue;
+                times.forEach((track, list) -> putPlayerTimes(uuid, track, list));
+                players++;
+            }
+        } catch (IOException e) {
+            logger.severe("Failed to import file storage: " + e.getMessage());
+            return false;
+        } finally {
+            importFrom.close(false);
+        }
+        if (!drainOps()) return false;
+        if (tracks + records + players > 0) {
+            logger.info("Imported " + tracks + " tracks, " + records + " leaderboard entries and " + players
+                    + " players into " + dbFile.getFileName() + ". The old files were left in place.");
+        }
+        return true;
+    }
+
+    private static State emptyState() {
+        return new State() {
+            @Override
+            public List<TrackRecord> trackRecords(String track) {
+                return null;
+            }
+
+            @Override
+            public Map<String, List<Long>> playerRecords(UUID uuid) {
+                return null;
+            }
+
+            @Override
+            public Collection<String> leaderboards() {
+                return List.of();
+            }
+
+            @Override
+            public Collection<UUID> loadedPlayers() {
+                return List.of();
+            }
+        };
+    }
+
+    // --- Tracks & events ---
+
+    @Override
+    public Map<String, Track> loadTracks() throws IOException {
+        return loadBlobs("tracks", Track.class);
+    }
+
+    @Override
+    public Map<String, RaceEvent> loadEvents() throws IOException {
+        return loadBlobs("events", RaceEvent.class);
+    }
+
+    private <T> Map<String, T> loadBlobs(String table, Class<T> type) throws IOException {
+        Map<String, T> loaded = new HashMap<>();
+        synchronized (this) {
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT name, data FROM " + table)) {
+                while (rs.next()) {
+                    T value = gson.fromJson(rs.getString(2), type);
+                    if (value != null) loaded.put(rs.getString(1), value);
+                }
+            } catch (SQLException | JsonSyntaxException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public boolean saveTracks(JsonObject tracks) {
+        return replaceBlobs("tracks", tracks);
+    }
+
+    @Override
+    public boolean saveEvents(JsonObject events) {
+        return replaceBlobs("events", events);
+    }
+
+    private boolean replaceBlobs(String table, JsonObject blobs) {
+        return transaction(c -> {
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("DELETE FROM " + table);
+            }
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO " + table + " (name, data) VALUES (?, ?)")) {
+                for (Map.Entry<String, JsonElement> entry : blobs.entrySet()) {
+                    ps.setString(1, entry.getKey());
+                    ps.setString(2, entry.getValue().toString());
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+            }
+        });
+    }
+
+    // --- Records ---
+
+    @Override
+    public Collection<String> listLeaderboards() throws IOException {
+        List<String> tracks = new ArrayList<>();
+        synchronized (this) {
+            try (Statement st = connection.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT DISTINCT track FROM records")) {
+                while (rs.next()) {
+                    tracks.add(rs.getString(1));
+                }
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return tracks;
+    }
+
+    @Override
+    public List<TrackRecord> loadRecords(String track) throws IOException {
+        return queryRecords("SELECT uuid, name, time_ms, ts FROM records WHERE track = ?", track.toLowerCase());
+    }
+
+    @Override
+    public boolean hasIndexedQueries() {
+        return true;
+    }
+
+    @Override
+    public int queryCount(String track) throws IOException {
+        drainOps();
+        synchronized (this) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT COUNT(*) FROM records WHERE track = ?")) {
+                ps.setString(1, track.toLowerCase());
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) : 0;
+                }
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    @Override
+    public List<TrackRecord> queryTop(String track, int offset, int limit) throws IOException {
+        return queryRecords("SELECT uuid, name, time_ms, ts FROM records WHERE track = ? ORDER BY time_ms, ts, uuid LIMIT ? OFFSET ?",
+                track.toLowerCase(), limit, offset);
+    }
+
+    @Override
+    public TrackRecord queryRecord(String track, UUID uuid) throws IOException {
+        List<TrackRecord> found = queryRecords("SELECT uuid, name, time_ms, ts FROM records WHERE track = ? AND uuid = ?",
+                track.toLowerCase(), uuid.toString());
+        return found.isEmpty() ? null : found.get(0);
+    }
+
+    @Override
+    public int queryRank(String track, UUID uuid) throws IOException {
+        TrackRecord record = queryRecord(track, uuid);
+        if (record == null) return -1;
+        synchronized (this) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT COUNT(*) FROM records WHERE track = ? AND (time_ms, ts, uuid) < (?, ?, ?)")) {
+                ps.setString(1, track.toLowerCase());
+                ps.setLong(2, record.getTimeMs());
+                ps.setLong(3, record.getTimestamp());
+                ps.setString(4, uuid.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? rs.getInt(1) + 1 : -1;
+                }
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+    }
+
+    private List<TrackRecord> queryRecords(String sql, Object... params) throws IOException {
+        // IO thread, so anything still queued goes in first
+        drainOps();
+        List<TrackRecord> found = new ArrayList<>();
+        synchronized (this) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                for (int i = 0; i < params.length; i++) {
+                    ps.setObject(i + 1, params[i]);
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        found.add(new TrackRecord(UUID.fromString(rs.getString(1)), rs.getString(2), rs.getLong(3), rs.getLong(4)));
+                    }
+                }
+            } catch (SQLException | IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Map<String, List<Long>> loadPlayerRecords(UUID uuid) throws IOException {
+        // Same as the records, a batched write of their times may still be queued. Reading
+        // around it would hand back an old top 3 that the next putPlayerTimes writes over it.
+        drainOps();
+        Map<String, List<Long>> loaded = new HashMap<>();
+        synchronized (this) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT track, t1, t2, t3 FROM player_times WHERE uuid = ?")) {
+                ps.setString(1, uuid.toString());
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        List<Long> times = new ArrayList<>(PLAYER_SLOTS);
+                        for (int slot = 0; slot < PLAYER_SLOTS; slot++) {
+                            long t = rs.getLong(2 + slot);
+                            if (!rs.wasNull()) times.add(t);
+                        }
+                        loaded.put(rs.getString(1), times);
+                    }
+                }
+            } catch (SQLException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+        }
+        return loaded.isEmpty() ? null : loaded;
+    }
+
+    @Override
+    public void playerUnloaded(UUID uuid, Map<String, List<Long>> records) {
+        // Every change is already queued
+    }
+
+    @Override
+    public void trackUnloaded(String track, List<TrackRecord> records) {
+        // Already in the database
+    }
+
+    @Override
+    public void putRecord(String track, TrackRecord record) {
+        String key = track.toLowerCase();
+        String uuid = record.getPlayerUUID().toString();
+        String name = record.getPlayerName();
+        long timeMs = record.getTimeMs();
+        long timestamp = record.getTimestamp();
+        enqueue(c -> {
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO records (track, uuid, name, time_ms, ts) VALUES (?, ?, ?, ?, ?)"
+                    + " ON CONFLICT (track, uuid) DO UPDATE SET name = excluded.name, time_ms = excluded.time_ms, ts = excluded.ts"
+                    + " WHERE excluded.time_ms < records.time_ms")) {
+                ps.setString(1, key);
+                ps.setString(2, uuid);
+                ps.setString(3, name);
+                ps.setLong(4, timeMs);
+                ps.setLong(5, timestamp);
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void removeRecord(String track, UUID uuid) {
+        String key = track.toLowerCase();
+        enqueue(c -> {
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM records WHERE track = ? AND uuid = ?")) {
+                ps.setString(1, key);
+                ps.setString(2, uuid.toString());
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void resetRecords(String track) {
+        String key = track.toLowerCase();
+        enqueue(c -> {
+            try (PreparedStatement ps = c.prepareStatement("DELETE FROM records WHERE track = ?")) {
+                ps.setString(1, key);
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    @Override
+    public void putPlayerTimes(UUID uuid, String track, List<Long> times) {
+        String key = track.toLowerCase();
+        List<Long> copy = List.copyOf(times);
+        enqueue(c -> {
+            try (PreparedStatement ps = c.prepareStatement("INSERT INTO player_times (uuid, track, t1, t2, t3) VALUES (?, ?, ?, ?, ?)"
+                    + " ON CONFLICT (uuid, track) DO UPDATE SET t1 = excluded.t1, t2 = excluded.t2, t3 = excluded.t3")) {
+                ps.setString(1, uuid.toString());
+                ps.setString(2, key);
+                for (int slot = 0; slot < PLAYER_SLOTS; slot++) {
+                    if (slot < copy.size()) {
+                        ps.setLong(3 + slot, copy.get(slot));
+                    } else {
+                        ps.setNull(3 + slot, Types.BIGINT);
+                    }
+                }
+                ps.executeUpdate();
+            }
+        });
+    }
+
+    // --- Write queue ---
+
+    private void enqueue(Op op) {
+        boolean first;
+        synchronized (pending) {
+            pending.add(op);
+            first = pending.size() == 1;
+        }
+        // Same as the journal: one commit per burst, batched mode waits for the tick
+        if (first && durability == DataStore.Durability.IMMEDIATE && !ioExecutor.isShutdown()) {
+            ioExecutor.submit(this::drainOps);
+        }
+    }
+
+    @Override
+    public void tick() {
+        boolean hasPending;
+        synchronized (pending) {
+            hasPending = !pending.isEmpty();
+        }
+        if (hasPending && !ioExecutor.isShutdown()) {
+            ioExecutor.submit(this::drainOps);
+        }
+    }
+
+    private boolean drainOps() {
+        List<Op> batch;
+        synchronized (pending) {
+            if (pending.isEmpty()) return true;
+            batch = new ArrayList<>(pending);
+            pending.clear();
+        }
+        boolean ok = transaction(c -> {
+            for (Op op : batch) {
+                op.apply(c);
+            }
+        });
+        if (ok) {
+            failedDrains = 0;
+            return true;
+        }
+        List<Op> retry = batch;
+        if (++failedDrains >= MAX_FAILED_DRAINS) {
+            // Probably one bad change holding up everything behind it, so go one at a time. If
+            // none of them go in it's the database that's failing and they all stay queued.
+            List<Op> failed = new ArrayList<>();
+            for (Op op : batch) {
+                if (!transaction(op)) failed.add(op);
+            }
+            if (failed.size() < batch.size()) {
+                failedDrains = 0;
+                if (failed.isEmpty()) return true;
+                droppedOps += failed.size();
+                logger.severe("Dropped " + failed.size() + " record change(s) that " + dbFile.getFileName() + " keeps rejecting.");
+                return false;
+            }
+            retry = failed;
+        }
+        // Put it back in front of anything newer so order is kept for the retry
+        synchronized (pending) {
+            pending.addAll(0, retry);
+        }
+        return false;
+    }
+
+    private synchronized boolean transaction(Op work) {
+        try {
+            connection.setAutoCommit(false);
+            try {
+                work.apply(connection);
+                connection.commit();
+                return true;
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.severe("Failed to write " + dbFile.getFileName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private synchronized int count(String sql) throws SQLException {
+        try (Statement st = connection.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    // --- Shutdown ---
+
+    @Override
+    public void close(boolean save) {
+        if (connection == null) return;
+        if (save && !drainOps()) {
+            logger.severe("Some record changes could not be written to " + dbFile.getFileName() + ".");
+        }
+        synchronized (this) {
+            try {
+                connection.close();
+            } catch (SQLException ignored) {}
+            connection = null;
+        }
+    }
+
+    @Override
+    public Map<String, String> stats() {
+        int queued;
+        synchronized (pending) {
+            queued = pending.size();
+        }
+        long kb;
+        try {
+            kb = Files.size(dbFile) / 1024;
+        } catch (IOException e) {
+            kb = 0;
+        }
+        Map<String, String> stats = new LinkedHashMap<>();
+        stats.put("Backend", "sqlite (" + dbFile.getFileName() + ", " + kb + " KB)");
+        stats.put("Pending changes", String.valueOf(queued));
+        if (droppedOps > 0) stats.put("Dropped changes", String.valueOf(droppedOps));
+        return stats;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.logging.Logger;
+
+/**
+ * Runs the startup phases on virtual threads and keeps track of how long each one took.
+ * Nothing here touches DataStore's maps, callers merge the results once every phase succeeded.
+ */
+public class StartupLoader implements AutoCloseable {
+
+    @FunctionalInterface
+    public interface Task<T> {
+        T call() throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface FileTask<K, V> {
+        V load(K key) throws IOException;
+    }
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, String> timings = Collections.synchronizedMap(new LinkedHashMap<>());
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * Starts a phase in the background.
+     */
+    public <T> Future<T> submit(String phase, Task<T> task) {
+        return executor.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return task.call();
+            } finally {
+                timings.put(phase, millisSince(start) + " ms");
+            }
+        });
+    }
+
+    /**
+     * Loads every key in parallel.
+     * @throws IOException from the first key that failed, the rest are cancelled
+     */
+    public <K, V> Map<K, V> loadAll(String phase, Collection<K> keys, FileTask<K, V> task) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Map<K, Future<V>> futures = new LinkedHashMap<>();
+        for (K key : keys) {
+            futures.put(key, executor.submit(() -> task.load(key)));
+        }
+        Map<K, V> results = new HashMap<>();
+        try {
+            for (Map.Entry<K, Future<V>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), await(entry.getValue()));
+            }
+        } catch (IOException | InterruptedException e) {
+            futures.values().forEach(f -> f.cancel(true));
+            throw e;
+        }
+        timings.put(phase, millisSince(start) + " ms / " + keys.size());
+        return results;
+    }
+
+    /**
+     * Waits for a phase and unwraps whatever it threw.
+     */
+    public static <T> T await(Future<T> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException io) throw io;
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IOException(cause);
+        }
+    }
+
+    public void logTimings(Logger logger) {
+        StringJoiner phases = new StringJoiner(", ");
+        synchronized (timings) {
+            timings.forEach((phase, time) -> phases.add(phase + " " + time));
+        }
+        logger.info("Loaded data in " + millisSince(startNanos) + " ms (" + phases + ")");
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
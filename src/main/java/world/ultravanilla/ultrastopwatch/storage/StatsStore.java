@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonSyntaxException;
+import world.ultravanilla.ultrastopwatch.model.TrackStats;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/**
+ * Each track's run statistics in its own small file under {@code stats/}, so a finished run only
+ * rewrites that track's file instead of all of tracks.json. Same files whatever the storage
+ * backend, like the run history. IO thread (or startup) only.
+ */
+final class StatsStore {
+
+    private static final String EXTENSION = ".json";
+
+    private final Path dir;
+    private final Logger logger;
+    private final Gson gson = new Gson();
+
+    StatsStore(Path dir, Logger logger) {
+        this.dir = dir;
+        this.logger = logger;
+    }
+
+    /** Keyed by lowercased track name. */
+    Map<String, TrackStats> load() throws IOException {
+        Map<String, TrackStats> loaded = new HashMap<>();
+        if (!Files.isDirectory(dir)) return loaded;
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                String fileName = file.getFileName().toString();
+                if (!fileName.endsWith(EXTENSION)) continue;
+                try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                    TrackStats stats = gson.fromJson(reader, TrackStats.class);
+                    if (stats != null) loaded.put(fileName.substring(0, fileName.length() - EXTENSION.length()), stats);
+                } catch (JsonSyntaxException e) {
+                    throw new IOException(fileName + ": " + e.getMessage(), e);
+                }
+            }
+        }
+        return loaded;
+    }
+
+    boolean save(String track, JsonElement snapshot) {
+        Path file = dir.resolve(track + EXTENSION);
+        Path tmp = file.resolveSibling(file.getFileName() + "." + UUID.randomUUID() + ".tmp");
+        try {
+            Files.createDirectories(dir);
+            Files.writeString(tmp, gson.toJson(snapshot));
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            logger.severe("Failed to save stats for track " + track + ": " + e.getMessage());
+            try { Files.deleteIfExists(tmp); } catch (IOException ignored) {}
+            return false;
+        }
+    }
+
+    boolean delete(String track) {
+        try {
+            Files.deleteIfExists(dir.resolve(track + EXTENSION));
+            return true;
+        } catch (IOException e) {
+            logger.warning("Failed to delete stats for track " + track + ": " + e.getMessage());
+            return false;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import com.google.gson.JsonObject;
+import world.ultravanilla.ultrastopwatch.model.RaceEvent;
+import world.ultravanilla.ultrastopwatch.model.Track;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Where DataStore persists tracks, events, leaderboards and personal records.
+ * <p>
+ * Threading: {@link #open} runs first during enable, then the other startup methods may run
+ * concurrently on loader threads. Record changes are reported from the main thread and must
+ * not block (queue the IO on the executor you were given), everything else runs on DataStore's
+ * IO thread.
+ */
+public interface StorageBackend {
+
+    /**
+     * Read-only view of what DataStore currently holds in memory.
+     */
+    interface State {
+        /**
+         * Current entries in rank order (empty once reset), or null if the leaderboard isn't
+         * fully in memory right now, in which case leave its stored copy alone.
+         */
+        List<TrackRecord> trackRecords(String track);
+
+        /** Current top times of an online player, or null if not loaded. */
+        Map<String, List<Long>> playerRecords(UUID uuid);
+
+        Collection<String> leaderboards();
+
+        Collection<UUID> loadedPlayers();
+    }
+
+    // --- Startup ---
+
+    boolean open(State state);
+
+    Map<String, Track> loadTracks() throws IOException;
+
+    Map<String, RaceEvent> loadEvents() throws IOException;
+
+    Collection<String> listLeaderboards() throws IOException;
+
+    /** Entries for one track, any order. */
+    List<TrackRecord> loadRecords(String track) throws IOException;
+
+    // --- IO thread ---
+
+    /** @return the player's top times per track, or null if they have none stored */
+    Map<String, List<Long>> loadPlayerRecords(UUID uuid) throws IOException;
+
+    boolean saveTracks(JsonObject tracks);
+
+    boolean saveEvents(JsonObject events);
+
+    void playerUnloaded(UUID uuid, Map<String, List<Long>> records);
+
+    /** An idle leaderboard was dropped from memory, these were its entries in rank order. */
+    void trackUnloaded(String track, List<TrackRecord> records);
+
+    // --- Record changes, main thread ---
+
+    void putRecord(String track, TrackRecord record);
+
+    void removeRecord(String track, UUID uuid);
+
+    void resetRecords(String track);
+
+    void putPlayerTimes(UUID uuid, String track, List<Long> times);
+
+    /** Called once per flush interval on the main thread. */
+    void tick();
+
+    // --- Indexed queries, backends without an index just load the track ---
+
+    /**
+     * True if the queries below read an index instead of the whole track. Only then does
+     * DataStore use them for boards that aren't in memory, otherwise it loads the board.
+     */
+    default boolean hasIndexedQueries() {
+        return false;
+    }
+
+    default int queryCount(String track) throws IOException {
+        return loadRecords(track).size();
+    }
+
+    default List<TrackRecord> queryTop(String track, int offset, int limit) throws IOException {
+        RankedLeaderboard board = new RankedLeaderboard();
+        loadRecords(track).forEach(board::submit);
+        return board.page(offset, limit);
+    }
+
+    /** @return 1-based rank, or -1 if the player has no entry */
+    default int queryRank(String track, UUID uuid) throws IOException {
+        RankedLeaderboard board = new RankedLeaderboard();
+        loadRecords(track).forEach(board::submit);
+        return board.rankOf(uuid);
+    }
+
+    default TrackRecord queryRecord(String track, UUID uuid) throws IOException {
+        TrackRecord best = null;
+        for (TrackRecord record : loadRecords(track)) {
+            if (record.getPlayerUUID().equals(uuid) && (best == null || record.getTimeMs() < best.getTimeMs())) {
+                best = record;
+            }
+        }
+        return best;
+    }
+
+    // --- Shutdown ---
+
+    /**
+     * Called after the IO thread has drained.
+     * @param save false if DataStore never finished loading and nothing may be written
+     */
+    void close(boolean save);
+
+    /** Label -> value lines for /track storage. */
+    Map<String, String> stats();
+}
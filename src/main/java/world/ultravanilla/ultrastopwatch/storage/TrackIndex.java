@@ -0,0 +1,146 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.storage;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import world.ultravanilla.ultrastopwatch.model.Track;
+
+import java.util.*;
+
+/**
+ * Every start and finish line block, keyed by world and packed block position, so the
+ * listeners can ask "which lines is this block on" with a single hash lookup.
+ * <p>
+ * Immutable, DataStore builds a new one whenever tracks change or a world loads.
+ * Tracks in worlds that aren't loaded are left out.
+ */
+public final class TrackIndex {
+
+    public static final TrackIndex EMPTY = new TrackIndex(Map.of(), 0);
+
+    private static final Track[] NONE = new Track[0];
+
+    private static final class Cell {
+        Track[] starts = NONE;
+        Track[] ends = NONE;
+    }
+
+    private final Map<UUID, Long2ObjectOpenHashMap<Cell>> worlds;
+    private final int blocks;
+
+    private TrackIndex(Map<UUID, Long2ObjectOpenHashMap<Cell>> worlds, int blocks) {
+        this.worlds = worlds;
+        this.blocks = blocks;
+    }
+
+    public static TrackIndex build(Collection<Track> tracks) {
+        Map<UUID, Long2ObjectOpenHashMap<Cell>> worlds = new HashMap<>();
+        int blocks = 0;
+        // Sorted so auto-arm picks the same track every time when lines overlap
+        List<Track> sorted = new ArrayList<>(tracks);
+        sorted.sort(Comparator.comparing(Track::getName, String.CASE_INSENSITIVE_ORDER));
+        for (Track track : sorted) {
+            if (track.getWorld() == null) continue;
+            World world = Bukkit.getWorld(track.getWorld());
+            if (world == null) continue;
+            Long2ObjectOpenHashMap<Cell> cells = worlds.computeIfAbsent(world.getUID(), k -> new Long2ObjectOpenHashMap<>());
+            if (track.isStartBSet()) {
+                blocks += addLine(cells, track, true, track.getStartPoint1(), track.getStartPoint2());
+            }
+            if (track.isEndBSet()) {
+                blocks += addLine(cells, track, false, track.getEndPoint1(), track.getEndPoint2());
+            }
+        }
+        return new TrackIndex(worlds, blocks);
+    }
+
+    private static int addLine(Long2ObjectOpenHashMap<Cell> cells, Track track, boolean start, Location a, Location b) {
+        if (a == null || b == null) return 0;
+        int minX = Math.min(a.getBlockX(), b.getBlockX());
+        int maxX = Math.max(a.getBlockX(), b.getBlockX());
+        int minZ = Math.min(a.getBlockZ(), b.getBlockZ());
+        int maxZ = Math.max(a.getBlockZ(), b.getBlockZ());
+        int y = a.getBlockY();
+        for (int x = minX; x <= maxX; x++) {
+            for (int z = minZ; z <= maxZ; z++) {
+                long key = pack(x, y, z);
+                Cell cell = cells.get(key);
+                if (cell == null) {
+                    cell = new Cell();
+                    cells.put(key, cell);
+                }
+                if (start) {
+                    cell.starts = append(cell.starts, track);
+                } else {
+                    cell.ends = append(cell.ends, track);
+                }
+            }
+        }
+        return (maxX - minX + 1) * (maxZ - minZ + 1);
+    }
+
+    private static Track[] append(Track[] array, Track track) {
+        Track[] grown = Arrays.copyOf(array, array.length + 1);
+        grown[array.length] = track;
+        return grown;
+    }
+
+    // Same layout as vanilla's BlockPos.asLong
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private Cell cell(World world, int x, int y, int z) {
+        Long2ObjectOpenHashMap<Cell> cells = worlds.get(world.getUID());
+        return cells == null ? null : cells.get(pack(x, y, z));
+    }
+
+    /**
+     * Tracks whose start line includes this block, sorted by name. Don't modify the array.
+     */
+    public Track[] startsAt(World world, int x, int y, int z) {
+        Cell cell = cell(world, x, y, z);
+        return cell == null ? NONE : cell.starts;
+    }
+
+    public boolean isStart(Track track, World world, int x, int y, int z) {
+        Cell cell = cell(world, x, y, z);
+        return cell != null && contains(cell.starts, track);
+    }
+
+    public boolean isEnd(Track track, World world, int x, int y, int z) {
+        Cell cell = cell(world, x, y, z);
+        return cell != null && contains(cell.ends, track);
+    }
+
+    private static boolean contains(Track[] tracks, Track track) {
+        for (Track t : tracks) {
+            if (t == track) return true;
+        }
+        return false;
+    }
+
+    /** Line blocks indexed, counting a block once per line it's on. */
+    public int size() {
+        return blocks;
+    }
+}
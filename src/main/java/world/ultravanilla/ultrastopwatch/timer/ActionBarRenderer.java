@@ -0,0 +1,88 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.timer;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.entity.Player;
+import world.ultravanilla.ultrastopwatch.model.TrackRecord;
+
+/**
+ * Draws running times on the action bar. Each kind of timer has its own refresh rate, nothing
+ * is sent when the shown text hasn't changed, and components are shared between everyone
+ * showing the same time. Called from every player's region, so the cache is shared safely.
+ */
+class ActionBarRenderer {
+
+    // The client fades the action bar out after 3 seconds
+    private static final int KEEPALIVE_TICKS = 40;
+    private static final int CACHE_SIZE = 256;
+
+    private record Cached(long units, Component component) {}
+
+    private final int[] refreshTicks = new int[PlayerTimer.TimerType.values().length];
+    private final int decimals;
+    private final long unitMs;
+
+    // Direct mapped, slot is units % CACHE_SIZE. Entries are immutable so a racing write
+    // just means a miss.
+    private final Cached[] cache = new Cached[CACHE_SIZE];
+
+    /**
+     * @param config the {@code action-bar} section, may be null
+     */
+    ActionBarRenderer(ConfigurationSection config) {
+        for (PlayerTimer.TimerType type : PlayerTimer.TimerType.values()) {
+            int ticks = config == null ? 4 : config.getInt("refresh-ticks." + type.name().toLowerCase(), 4);
+            refreshTicks[type.ordinal()] = Math.max(1, ticks);
+        }
+        this.decimals = Math.max(0, Math.min(3, config == null ? 3 : config.getInt("precision", 3)));
+        long unit = 1;
+        for (int i = decimals; i < 3; i++) unit *= 10;
+        this.unitMs = unit;
+    }
+
+    /** Ticks between renders for this kind of timer. */
+    int getRefreshTicks(PlayerTimer.TimerType type) {
+        return refreshTicks[type.ordinal()];
+    }
+
+    void render(PlayerTimer timer, long elapsedMs) {
+        long units = Math.max(0, elapsedMs) / unitMs;
+        timer.rendersSinceSend++;
+        if (units == timer.shownUnits && timer.rendersSinceSend * refreshTicks[timer.type.ordinal()] < KEEPALIVE_TICKS) return;
+
+        Player player = timer.player;
+        if (player == null || !player.isOnline()) return;
+        player.sendActionBar(component(units));
+        timer.shownUnits = units;
+        timer.rendersSinceSend = 0;
+    }
+
+    private Component component(long units) {
+        int slot = (int) (units % CACHE_SIZE);
+        Cached cached = cache[slot];
+        if (cached != null && cached.units() == units) return cached.component();
+        String full = TrackRecord.formatTime(units * unitMs); // MM:SS.mmm
+        Component component = Component.text(full.substring(0, decimals == 0 ? 5 : 6 + decimals), NamedTextColor.GOLD);
+        cache[slot] = new Cached(units, component);
+        return component;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.timer;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.java.JavaPlugin;
+import world.ultravanilla.ultrastopwatch.Scheduling;
+import world.ultravanilla.ultrastopwatch.model.Track;
+import world.ultravanilla.ultrastopwatch.storage.DataStore;
+import world.ultravanilla.ultrastopwatch.storage.TrackIndex;
+
+import java.util.Arrays;
+
+/**
+ * The {@code pending-detection: tick} way of starting timers: instead of looking at every move
+ * event, armed players' positions are read once a tick and checked in one go. Only scheduled
+ * while someone is armed. On Folia players can't be batched across regions, so each armed
+ * player gets their own task instead.
+ */
+class PendingStartPoller {
+
+    private final JavaPlugin plugin;
+    private final DataStore dataStore;
+    private final TimerManager timerManager;
+
+    // Batched mode only, global region
+    private final ObjectArrayList<PlayerTimer> armed = new ObjectArrayList<>();
+    private final ObjectArrayList<PlayerTimer> starting = new ObjectArrayList<>();
+    private double[] crossings = new double[16];
+    private ScheduledTask task;
+
+    PendingStartPoller(JavaPlugin plugin, DataStore dataStore, TimerManager timerManager) {
+        this.plugin = plugin;
+        this.dataStore = dataStore;
+        this.timerManager = timerManager;
+    }
+
+    // Called from the player's region
+    void arm(PlayerTimer timer) {
+        Location loc = timer.player.getLocation(timer.scratch);
+        timer.pollX = loc.getX();
+        timer.pollY = loc.getY();
+        timer.pollZ = loc.getZ();
+        if (Scheduling.isFolia()) {
+            if (timer.pollTask == null) {
+                timer.pollTask = timer.player.getScheduler().runAtFixedRate(plugin, t -> pollOne(timer), null, 1L, 1L);
+            }
+            return;
+        }
+        if (!armed.contains(timer)) armed.add(timer);
+        if (task == null) {
+            task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> tick(), 1L, 1L);
+        }
+    }
+
+    void disarm(PlayerTimer timer) {
+        if (timer.pollTask != null) {
+            timer.pollTask.cancel();
+            timer.pollTask = null;
+            return;
+        }
+        if (armed.remove(timer) && armed.isEmpty()) {
+            cancel();
+        }
+    }
+
+    void cancel() {
+        armed.clear();
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+    }
+
+    private void tick() {
+        TrackIndex index = dataStore.getTrackIndex();
+        for (int i = 0; i < armed.size(); i++) {
+            PlayerTimer timer = armed.get(i);
+            double crossing = poll(timer, index);
+            if (crossing >= 0) {
+                if (starting.size() == crossings.length) crossings = Arrays.copyOf(crossings, crossings.length * 2);
+                crossings[starting.size()] = crossing;
+                starting.add(timer);
+            }
+        }
+        // Starting disarms them, so not while iterating
+        for (int i = 0; i < starting.size(); i++) {
+            timerManager.triggerStart(starting.get(i), crossings[i]);
+        }
+        starting.clear();
+    }
+
+    private void pollOne(PlayerTimer timer) {
+        double crossing = poll(timer, dataStore.getTrackIndex());
+        if (crossing >= 0) timerManager.triggerStart(timer, crossing);
+    }
+
+    private double poll(PlayerTimer timer, TrackIndex index) {
+        Location to = timer.player.getLocation(timer.scratch);
+        double x = to.getX(), y = to.getY(), z = to.getZ();
+        boolean moved = floor(timer.pollX) != floor(x) || floor(timer.pollY) != floor(y) || floor(timer.pollZ) != floor(z);
+        double crossing = moved ? check(timer, index, to.getWorld(), x, y, z) : -1;
+        timer.pollX = x;
+        timer.pollY = y;
+        timer.pollZ = z;
+        return crossing;
+    }
+
+    /**
+     * @return how far through the move they crossed the start line, or -1 if they didn't
+     */
+    private double check(PlayerTimer timer, TrackIndex index, World world, double x, double y, double z) {
+        // Casual timers start on any move, same as tracks that aren't set up yet
+        Track track = timer.track();
+        if (track == null || !track.isFullyConfigured()) return 1;
+
+        boolean entering = onStartLine(index, track, world, x, y, z);
+        boolean leaving = onStartLine(index, track, world, timer.pollX, timer.pollY, timer.pollZ);
+        if (!entering && !leaving) return -1;
+        if (track.getClock() != Track.ClockMode.TICK) return 1;
+        return track.startCrossing(timer.pollX, timer.pollZ, x, z);
+    }
+
+    // Current block and the one below, like the move listener
+    private static boolean onStartLine(TrackIndex index, Track track, World world, double x, double y, double z) {
+        int bx = floor(x);
+        int by = floor(y);
+        int bz = floor(z);
+        return index.isStart(track, world, bx, by, bz) || index.isStart(track, world, bx, by - 1, bz);
+    }
+
+    private static int floor(double value) {
+        return (int) Math.floor(value);
+    }
+}
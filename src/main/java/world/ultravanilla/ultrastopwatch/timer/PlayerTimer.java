@@ -18,7 +18,21 @@
  */
 package world.ultravanilla.ultrastopwatch.timer;
 
-public record PlayerTimer(TimerType type, String trackName) {
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import org.bukkit.Location;
+import org.bukkit.entity.Player;
+import world.ultravanilla.ultrastopwatch.model.Track;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Everything TimerManager keeps about one player, in one place so the listeners get it with
+ * a single lookup. It lives until the player leaves and is reused from run to run, then goes
+ * back to TimerManager's pool. Only touched from the player's own region (the main thread on
+ * Paper), TimerManager does all the writing.
+ */
+public final class PlayerTimer {
 
     public enum TimerType {
         MANUAL,
@@ -26,15 +40,136 @@ public record PlayerTimer(TimerType type, String trackName) {
         TRACK
     }
 
-    public static PlayerTimer manual() {
-        return new PlayerTimer(TimerType.MANUAL, null);
+    static final long NOT_STARTED = Long.MIN_VALUE;
+
+    UUID uuid;
+    Player player;
+
+    // The current timer, type is null when there isn't one. runId changes with every timer so
+    // late deadlines can tell they're stale
+    int runId;
+    TimerType type;
+    Track track;
+    String trackName;
+    boolean pending;
+    long startNanos = NOT_STARTED;
+    int lapsRemaining;
+    long lastLapNanos;
+    // Each finished lap's time, for the run history
+    long[] lapSplits = new long[0];
+    int lapCount;
+
+    // Deadlines on TimerManager's wheel, cancelled there
+    TimingWheel.Timeout expiry;
+    TimingWheel.Timeout pendingTimeout;
+    TimingWheel.Timeout triggerWindow;
+    boolean inTriggerDelay;
+
+    // Tick clocked runs, where they were on their last move
+    boolean tickClock;
+    double lastX, lastZ;
+
+    // What the action bar shows, see ActionBarRenderer
+    ScheduledTask displayTask;
+    long shownUnits = -1;
+    int rendersSinceSend;
+
+    // Where the pending start poller last saw them
+    ScheduledTask pollTask;
+    double pollX, pollY, pollZ;
+    final Location scratch = new Location(null, 0, 0, 0);
+
+    // Last finished track run, waiting on /track submit
+    String submitTrack;
+    long submitTimeMs = -1;
+    int submitId;
+    TimingWheel.Timeout submitTimeout;
+
+    public Player player() {
+        return player;
+    }
+
+    public TimerType type() {
+        return type;
+    }
+
+    /** The track of a TRACK timer, null otherwise. */
+    public Track track() {
+        return track;
+    }
+
+    /** Lowercase name of {@link #track()}. */
+    public String trackName() {
+        return trackName;
+    }
+
+    public boolean isActive() {
+        return type != null;
+    }
+
+    public boolean isPending() {
+        return pending;
+    }
+
+    public boolean isRunning() {
+        return startNanos != NOT_STARTED;
+    }
+
+    /**
+     * True until the track's trigger delay has (probably) passed. Only a hint, the elapsed time
+     * still decides while it's set.
+     */
+    public boolean isInTriggerDelay() {
+        return inTriggerDelay;
+    }
+
+    void start(Player player, TimerType type, Track track) {
+        runId++;
+        this.player = player;
+        this.type = type;
+        this.track = track;
+        this.trackName = track == null ? null : track.getName().toLowerCase();
+    }
+
+    void addLapSplit(long split) {
+        if (lapCount == lapSplits.length) lapSplits = Arrays.copyOf(lapSplits, Math.max(4, lapCount * 2));
+        lapSplits[lapCount++] = split;
+    }
+
+    // Ends the timer, keeps the pending submission
+    void clearTimer() {
+        type = null;
+        track = null;
+        trackName = null;
+        pending = false;
+        startNanos = NOT_STARTED;
+        lapsRemaining = 0;
+        lastLapNanos = 0;
+        lapCount = 0;
+        tickClock = false;
+        expiry = null;
+        pendingTimeout = null;
+        triggerWindow = null;
+        inTriggerDelay = false;
+        if (displayTask != null) {
+            displayTask.cancel();
+            displayTask = null;
+        }
+        shownUnits = -1;
+        rendersSinceSend = 0;
     }
 
-    public static PlayerTimer casual() {
-        return new PlayerTimer(TimerType.CASUAL, null);
+    void clearSubmission() {
+        submitTrack = null;
+        submitTimeMs = -1;
+        submitTimeout = null;
     }
 
-    public static PlayerTimer track(String trackName) {
-        return new PlayerTimer(TimerType.TRACK, trackName);
+    // Ready for someone else
+    void recycle() {
+        clearTimer();
+        clearSubmission();
+        uuid = null;
+        player = null;
     }
 }
@@ -18,56 +18,130 @@
  */
 package world.ultravanilla.ultrastopwatch.timer;
 
-import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
-import it.unimi.dsi.fastutil.objects.Object2LongOpenHashMap;
-import it.unimi.dsi.fastutil.objects.ObjectArrayList;
-import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.event.ClickEvent;
 import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.TextDecoration;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.Bukkit;
+import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
+import world.ultravanilla.ultrastopwatch.Scheduling;
 import world.ultravanilla.ultrastopwatch.model.Track;
 import world.ultravanilla.ultrastopwatch.model.TrackRecord;
 import world.ultravanilla.ultrastopwatch.storage.DataStore;
+import world.ultravanilla.ultrastopwatch.storage.RunArchive;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
 
+/**
+ * Everyone's timers. A player's timer is only touched from their own region, anything that
+ * needs DataStore is handed to the global region (see {@link Scheduling}).
+ */
 public class TimerManager {
 
     private final JavaPlugin plugin;
     private final DataStore dataStore;
 
-    // Hot path
-    private final Object2LongOpenHashMap<UUID> runningTimers = new Object2LongOpenHashMap<>(); // uuid -> startNanos
-    private final Object2IntOpenHashMap<UUID> lapsRemaining = new Object2IntOpenHashMap<>();
-    private final Object2LongOpenHashMap<UUID> lastLapNanos = new Object2LongOpenHashMap<>();
-    private final ObjectOpenHashSet<UUID> pendingTimers = new ObjectOpenHashSet<>(); // players waiting to move
+    // Hot path, one entry per player with a timer or a run waiting to be submitted
+    private final Map<UUID, PlayerTimer> timers = new ConcurrentHashMap<>();
+
+    // Spare states from players who left, so joins and runs don't allocate
+    private static final int MAX_POOLED = 64;
+    private final Queue<PlayerTimer> pool = new ConcurrentLinkedQueue<>();
+
+    private static final long NANOS_PER_TICK = 50_000_000L;
 
-    private record PendingRun(String trackName, long timeMs) {}
-    private final Map<UUID, PendingRun> pendingSubmissions = new HashMap<>();
+    // Only set with pending-detection: tick, otherwise TimerListener starts timers on move
+    private final PendingStartPoller pendingPoller;
 
-    // Cold path
-    private final Map<UUID, PlayerTimer> timerDetails = new HashMap<>();
+    private final ActionBarRenderer actionBar;
 
-    private BukkitTask actionBarTask;
-    private final long maxTimerMillis;
-    private final ObjectArrayList<UUID> expiryList = new ObjectArrayList<>();
+    // Expiry, pending start timeouts, trigger delays and forgotten submissions
+    private final TimingWheel deadlines;
+    private final long maxTimerTicks;
+    private final long pendingTimeoutTicks;
+    private final long submitTimeoutTicks;
 
     public TimerManager(JavaPlugin plugin, DataStore dataStore) {
         this.plugin = plugin;
         this.dataStore = dataStore;
-        this.maxTimerMillis = plugin.getConfig().getLong("max-timer-seconds", 3600) * 1000L;
-        runningTimers.defaultReturnValue(Long.MIN_VALUE);
+        this.deadlines = new TimingWheel(plugin);
+        this.maxTimerTicks = plugin.getConfig().getLong("max-timer-seconds", 3600) * 20L;
+        this.pendingTimeoutTicks = plugin.getConfig().getLong("pending-timeout-seconds", 300) * 20L;
+        this.submitTimeoutTicks = plugin.getConfig().getLong("submit-timeout-minutes", 10) * 60L * 20L;
+        this.actionBar = new ActionBarRenderer(plugin.getConfig().getConfigurationSection("action-bar"));
+        String detection = plugin.getConfig().getString("pending-detection", "event");
+        if (!"event".equalsIgnoreCase(detection) && !"tick".equalsIgnoreCase(detection)) {
+            plugin.getLogger().warning("Unknown pending-detection, using event.");
+        }
+        this.pendingPoller = "tick".equalsIgnoreCase(detection) ? new PendingStartPoller(plugin, dataStore, this) : null;
+    }
+
+    // --- State bookkeeping ---
+
+    private PlayerTimer obtain(Player player) {
+        PlayerTimer timer = timers.get(player.getUniqueId());
+        if (timer == null) {
+            timer = pool.poll();
+            if (timer == null) timer = new PlayerTimer();
+            timer.uuid = player.getUniqueId();
+            timers.put(timer.uuid, timer);
+        }
+        timer.player = player;
+        return timer;
+    }
+
+    private void arm(PlayerTimer timer) {
+        timer.pending = true;
+        if (pendingPoller != null) pendingPoller.arm(timer);
+        if (pendingTimeoutTicks > 0) {
+            timer.pendingTimeout = deadline(timer, pendingTimeoutTicks, this::pendingTimedOut);
+        }
+    }
+
+    private void markRunning(PlayerTimer timer, long now) {
+        if (now == PlayerTimer.NOT_STARTED) now++;
+        timer.startNanos = now;
+        if (maxTimerTicks > 0 && timer.expiry == null) {
+            timer.expiry = deadline(timer, maxTimerTicks, this::expire);
+        }
+        if (timer.displayTask == null) {
+            long period = actionBar.getRefreshTicks(timer.type);
+            timer.displayTask = timer.player.getScheduler().runAtFixedRate(plugin, t -> tickDisplay(timer), null, 1L, period);
+        }
+    }
+
+    // Ends whatever timer they have, keeping the state for /track submit
+    private void endTimer(PlayerTimer timer) {
+        if (timer.pending && pendingPoller != null) pendingPoller.disarm(timer);
+        deadlines.cancel(timer.expiry);
+        deadlines.cancel(timer.pendingTimeout);
+        deadlines.cancel(timer.triggerWindow);
+        timer.clearTimer();
     }
 
+    private void dropSubmission(PlayerTimer timer) {
+        deadlines.cancel(timer.submitTimeout);
+        timer.clearSubmission();
+    }
+
+    private void release(PlayerTimer timer) {
+        endTimer(timer);
+        dropSubmission(timer);
+        timers.remove(timer.uuid);
+        timer.recycle();
+        if (pool.size() < MAX_POOLED) pool.offer(timer);
+    }
+
+    // --- Commands ---
+
     public void startManual(Player player) {
-        if (timerDetails.containsKey(player.getUniqueId())) {
+        if (hasTimer(player.getUniqueId())) {
             player.sendMessage(Component.text("You already have an active timer! Use ", NamedTextColor.RED)
                     .append(Component.text("/sw stop", NamedTextColor.YELLOW))
                     .append(Component.text(" or ", NamedTextColor.RED))
@@ -75,88 +149,137 @@ public class TimerManager {
                     .append(Component.text(" first.", NamedTextColor.RED)));
             return;
         }
-        PlayerTimer timer = PlayerTimer.manual();
-        timerDetails.put(player.getUniqueId(), timer);
-        long now = System.nanoTime();
-        if (now == Long.MIN_VALUE) now++;
-        runningTimers.put(player.getUniqueId(), now);
+        PlayerTimer timer = obtain(player);
+        timer.start(player, PlayerTimer.TimerType.MANUAL, null);
+        markRunning(timer, System.nanoTime());
         player.sendActionBar(Component.text("Timer started!", NamedTextColor.GREEN));
         player.sendMessage(Component.text("Timer started! Run ", NamedTextColor.GREEN)
                 .append(Component.text("/sw reset", NamedTextColor.YELLOW))
                 .append(Component.text(" to cancel.", NamedTextColor.GREEN)));
-        ensureActionBarTask();
     }
 
     public void startCasual(Player player) {
-        if (timerDetails.containsKey(player.getUniqueId())) {
+        if (hasTimer(player.getUniqueId())) {
             player.sendMessage(Component.text("You already have an active timer! Use ", NamedTextColor.RED)
                     .append(Component.text("/sw reset", NamedTextColor.YELLOW))
                     .append(Component.text(" first.", NamedTextColor.RED)));
             return;
         }
-        timerDetails.put(player.getUniqueId(), PlayerTimer.casual());
-        pendingTimers.add(player.getUniqueId());
+        PlayerTimer timer = obtain(player);
+        timer.start(player, PlayerTimer.TimerType.CASUAL, null);
+        arm(timer);
         player.sendActionBar(Component.text("Ready! Move to start the timer.", NamedTextColor.AQUA));
         player.sendMessage(Component.text("Ready! Move to start the timer.", NamedTextColor.AQUA));
     }
 
-    public void startTrackRun(Player player, String trackName) {
-        if (timerDetails.containsKey(player.getUniqueId())) {
+    public void startTrackRun(Player player, Track track) {
+        if (hasTimer(player.getUniqueId())) {
             player.sendMessage(Component.text("You already have an active timer!", NamedTextColor.RED));
             return;
         }
-        timerDetails.put(player.getUniqueId(), PlayerTimer.track(trackName.toLowerCase()));
-        pendingTimers.add(player.getUniqueId());
+        PlayerTimer timer = obtain(player);
+        timer.start(player, PlayerTimer.TimerType.TRACK, track);
+        arm(timer);
+        // Gets the leaderboard loading now so it's in memory by the finish line
+        prefetchLeaderboard(track);
         player.sendActionBar(Component.text("Ready! Move to start the timer.", NamedTextColor.AQUA));
         player.sendMessage(Component.text("Ready! Move to start the timer.", NamedTextColor.AQUA));
     }
 
-    public void triggerStart(Player player) {
-        if (!pendingTimers.remove(player.getUniqueId())) return;
+    /**
+     * Quiet version of {@link #startTrackRun} for players who walked onto a start line.
+     */
+    public void armTrackRun(Player player, Track track) {
+        if (hasTimer(player.getUniqueId())) return;
+        PlayerTimer timer = obtain(player);
+        timer.start(player, PlayerTimer.TimerType.TRACK, track);
+        arm(timer);
+        prefetchLeaderboard(track);
+        player.sendActionBar(Component.text("Ready for " + track.getName() + "! Cross the line to start.", NamedTextColor.AQUA));
+    }
 
-        PlayerTimer timer = timerDetails.get(player.getUniqueId());
-        if (timer == null) return;
+    private void prefetchLeaderboard(Track track) {
+        String name = track.getName();
+        Scheduling.runGlobal(plugin, () -> dataStore.prefetchLeaderboard(name));
+    }
 
-        long now = System.nanoTime();
-        if (now == Long.MIN_VALUE) now++;
-        runningTimers.put(player.getUniqueId(), now);
+    public void triggerStart(Player player) {
+        PlayerTimer timer = timers.get(player.getUniqueId());
+        if (timer != null) triggerStart(timer, 1);
+    }
 
-        if (timer.type() == PlayerTimer.TimerType.TRACK && timer.trackName() != null) {
-            Track track = dataStore.getTrack(timer.trackName());
-            if (track != null && track.getLaps() > 1) {
-                lapsRemaining.put(player.getUniqueId(), track.getLaps());
-                lastLapNanos.put(player.getUniqueId(), now);
-            }
+    /**
+     * @param crossing how far through the player's last move they crossed the start line,
+     *                 only used by tick clocked tracks
+     */
+    public void triggerStart(PlayerTimer timer, double crossing) {
+        if (!timer.pending) return;
+        timer.pending = false;
+        if (pendingPoller != null) pendingPoller.disarm(timer);
+        deadlines.cancel(timer.pendingTimeout);
+        timer.pendingTimeout = null;
+
+        Player player = timer.player;
+        Track track = timer.track;
+        long now;
+        if (track != null && track.getClock() == Track.ClockMode.TICK) {
+            Location loc = player.getLocation();
+            timer.tickClock = true;
+            timer.lastX = loc.getX();
+            timer.lastZ = loc.getZ();
+            now = tickNanos(crossing);
+        } else {
+            now = System.nanoTime();
+        }
+        markRunning(timer, now);
+        if (timer.type == PlayerTimer.TimerType.TRACK && track != null) {
+            String trackName = track.getName();
+            Scheduling.runGlobal(plugin, () -> dataStore.recordAttempt(trackName));
+        }
+
+        if (track != null && track.getLaps() > 1) {
+            timer.lapsRemaining = track.getLaps();
+            timer.lastLapNanos = timer.startNanos;
+        }
+        if (track != null && track.getTriggerDelay() > 0) {
+            // Rounded up to whole ticks, once it's over the listener can skip the clock
+            timer.inTriggerDelay = true;
+            timer.triggerWindow = deadline(timer, (track.getTriggerDelay() + 49) / 50, t -> t.inTriggerDelay = false);
         }
 
         player.sendActionBar(Component.text("GO!", NamedTextColor.GREEN));
         player.sendMessage(Component.text("Timer started! Run ", NamedTextColor.GREEN)
                 .append(Component.text("/sw reset", NamedTextColor.YELLOW))
                 .append(Component.text(" to cancel.", NamedTextColor.GREEN)));
-        ensureActionBarTask();
     }
 
-    public boolean lap(Player player, int totalLaps, long delayMs) {
-        UUID uuid = player.getUniqueId();
-        if (!lapsRemaining.containsKey(uuid)) {
-            lapsRemaining.put(uuid, totalLaps);
-            lastLapNanos.put(uuid, runningTimers.getLong(uuid));
+    /**
+     * Counts a lap of the timer's track.
+     * @param crossing see {@link #endCrossing}
+     * @return true once that was the last lap and the run should finish
+     */
+    public boolean lap(PlayerTimer timer, double crossing) {
+        int totalLaps = timer.track.getLaps();
+        if (timer.lapsRemaining == 0) {
+            timer.lapsRemaining = totalLaps;
+            timer.lastLapNanos = timer.startNanos;
         }
 
-        long now = System.nanoTime();
-        long last = lastLapNanos.getLong(uuid);
-        long split = (now - last) / 1_000_000;
+        long now = now(timer, crossing);
+        long split = (now - timer.lastLapNanos) / 1_000_000;
 
-        if (split < delayMs) {
+        if (split < timer.track.getTriggerDelay()) {
             return false;
         }
 
-        lastLapNanos.put(uuid, now);
-        int remaining = lapsRemaining.getInt(uuid);
+        timer.lastLapNanos = now;
+        timer.addLapSplit(split);
+        int remaining = timer.lapsRemaining;
 
         int currentLap = totalLaps - remaining + 1;
         String splitStr = TrackRecord.formatTime(split);
 
+        Player player = timer.player;
         player.sendMessage(Component.text("Lap " + currentLap + ": ", NamedTextColor.GRAY)
                 .append(Component.text(splitStr, NamedTextColor.AQUA)));
 
@@ -164,8 +287,7 @@ public class TimerManager {
             return true;
         }
 
-        remaining--;
-        lapsRemaining.put(uuid, remaining);
+        timer.lapsRemaining = remaining - 1;
         player.sendActionBar(Component.text("Lap " + currentLap + ": " + splitStr, NamedTextColor.AQUA));
 
         return false;
@@ -176,15 +298,32 @@ public class TimerManager {
     }
 
     public long stop(Player player, boolean saveRecord) {
-        long startNanos = runningTimers.removeLong(player.getUniqueId());
-        boolean wasPending = pendingTimers.remove(player.getUniqueId());
-        PlayerTimer timer = timerDetails.remove(player.getUniqueId());
+        return stop(player, timers.get(player.getUniqueId()), saveRecord, 1);
+    }
 
-        if (timer == null) {
+    /**
+     * Finishes a track run at the line.
+     * @param crossing see {@link #endCrossing}
+     */
+    public long finish(PlayerTimer timer, double crossing) {
+        return stop(timer.player, timer, true, crossing);
+    }
+
+    private long stop(Player player, PlayerTimer timer, boolean saveRecord, double crossing) {
+        if (timer == null || !timer.isActive()) {
             player.sendMessage(Component.text("You don't have an active timer.", NamedTextColor.RED));
             return -1;
         }
-        if (startNanos == Long.MIN_VALUE) {
+        long stopNanos = now(timer, crossing);
+        long startNanos = timer.startNanos;
+        boolean wasPending = timer.pending;
+        PlayerTimer.TimerType type = timer.type;
+        String trackName = timer.trackName;
+        Track track = timer.track;
+        long[] splits = Arrays.copyOf(timer.lapSplits, timer.lapCount);
+        endTimer(timer);
+
+        if (startNanos == PlayerTimer.NOT_STARTED) {
             if (wasPending) {
                 player.sendMessage(Component.text("Pending timer cancelled.", NamedTextColor.YELLOW));
             } else {
@@ -193,29 +332,43 @@ public class TimerManager {
             return -1;
         }
 
-        long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+        long elapsed = (stopNanos - startNanos) / 1_000_000;
         String formatted = TrackRecord.formatTime(elapsed);
 
         player.sendActionBar(Component.text(formatted, NamedTextColor.GOLD));
 
         // Handle track completion or standard message
-        if (saveRecord && timer.type() == PlayerTimer.TimerType.TRACK && timer.trackName() != null) {
-            handleTrackFinish(player, timer.trackName(), elapsed, formatted);
+        if (saveRecord && type == PlayerTimer.TimerType.TRACK && trackName != null) {
+            handleTrackFinish(player, timer, track, trackName, elapsed, formatted, splits);
         } else {
             player.sendMessage(Component.text("Time: ", NamedTextColor.GRAY)
                     .append(Component.text(formatted, NamedTextColor.GOLD)));
         }
 
-        cleanupActionBarTask();
         return elapsed;
     }
 
-    private void handleTrackFinish(Player player, String trackName, long elapsed, String formattedTime) {
+    private void handleTrackFinish(Player player, PlayerTimer timer, Track track, String trackName, long elapsed, String formattedTime, long[] splits) {
         // Always cache the latest run so it overwrites any previous pending run
-        pendingSubmissions.put(player.getUniqueId(), new PendingRun(trackName, elapsed));
+        deadlines.cancel(timer.submitTimeout);
+        timer.submitTrack = trackName;
+        timer.submitTimeMs = elapsed;
+        int submitId = ++timer.submitId;
+        if (submitTimeoutTicks > 0) {
+            timer.submitTimeout = deadlines.schedule(submitTimeoutTicks, () -> Scheduling.runFor(plugin, player, () -> {
+                if (timer.submitId == submitId && timer.player == player) timer.clearSubmission();
+            }));
+        }
+        RunArchive.Run run = new RunArchive.Run(player.getUniqueId(), player.getName(), elapsed, System.currentTimeMillis(), splits);
+        Scheduling.runGlobal(plugin, () -> {
+            dataStore.recordRun(trackName, run);
+            announceTrackFinish(player, track, trackName, elapsed, formattedTime);
+        });
+    }
 
+    // Global region, needs DataStore
+    private void announceTrackFinish(Player player, Track track, String trackName, long elapsed, String formattedTime) {
         long bestTime = dataStore.getPlayerBestTime(player.getUniqueId(), trackName);
-        long leaderboardTime = dataStore.getPlayerLeaderboardTime(player.getUniqueId(), trackName);
 
         Component message = Component.text("Time: ", NamedTextColor.GRAY)
                 .append(Component.text(formattedTime, NamedTextColor.GOLD));
@@ -228,54 +381,60 @@ public class TimerManager {
             player.sendMessage(message.append(Component.text(" (PB: " + pbStr + ")", NamedTextColor.YELLOW)));
         }
 
-        Track track = dataStore.getTrack(trackName);
         if (track != null && track.isLeaderboardEnabled()) {
-            if (leaderboardTime == -1 || elapsed < leaderboardTime) {
+            // Boards that aren't in memory are looked up in the background, the prompt follows
+            dataStore.getPlayerLeaderboardTime(player.getUniqueId(), trackName).whenComplete((leaderboardTime, error) -> Scheduling.runFor(plugin, player, () -> {
+                // A failed lookup still offers the submit, same as having no entry
+                if (error == null && leaderboardTime != -1 && elapsed >= leaderboardTime) return;
                 player.sendMessage(Component.text("Click here to submit to leaderboard", NamedTextColor.GREEN, TextDecoration.BOLD)
                         .clickEvent(ClickEvent.runCommand("/track submit"))
                         .hoverEvent(HoverEvent.showText(Component.text("Submit " + formattedTime))));
-            }
+            }));
         }
     }
 
     public void submitRun(Player player) {
-        PendingRun run = pendingSubmissions.remove(player.getUniqueId());
-        if (run == null) {
+        PlayerTimer timer = timers.get(player.getUniqueId());
+        if (timer == null || timer.submitTrack == null) {
             player.sendMessage(Component.text("No pending run to submit.", NamedTextColor.RED));
             return;
         }
+        String trackName = timer.submitTrack;
+        long timeMs = timer.submitTimeMs;
+        dropSubmission(timer);
+        Scheduling.runGlobal(plugin, () -> submitRecord(player, trackName, timeMs));
+    }
 
-        Track track = dataStore.getTrack(run.trackName());
+    // Global region, needs DataStore
+    private void submitRecord(Player player, String trackName, long timeMs) {
+        Track track = dataStore.getTrack(trackName);
         if (track != null && !track.isLeaderboardEnabled()) {
-            player.sendMessage(Component.text("Leaderboard for track '" + run.trackName() + "' is disabled.", NamedTextColor.RED));
+            player.sendMessage(Component.text("Leaderboard for track '" + trackName + "' is disabled.", NamedTextColor.RED));
             return;
         }
 
-        TrackRecord record = new TrackRecord(player.getUniqueId(), player.getName(), run.timeMs());
-        dataStore.addRecord(run.trackName(), record);
+        TrackRecord record = new TrackRecord(player.getUniqueId(), player.getName(), timeMs);
+        dataStore.addRecord(trackName, record);
         player.sendMessage(Component.text("Run submitted!", NamedTextColor.GREEN));
     }
 
     public void reset(Player player) {
-        runningTimers.removeLong(player.getUniqueId());
-        pendingTimers.remove(player.getUniqueId());
-        PlayerTimer removed = timerDetails.remove(player.getUniqueId());
-
-        if (removed == null) {
+        PlayerTimer timer = timers.get(player.getUniqueId());
+        if (timer == null || !timer.isActive()) {
             player.sendMessage(Component.text("You don't have an active timer.", NamedTextColor.RED));
             return;
         }
+        endTimer(timer);
         player.sendActionBar(Component.text("Timer reset.", NamedTextColor.YELLOW));
         player.sendMessage(Component.text("Timer reset.", NamedTextColor.YELLOW));
-        cleanupActionBarTask();
     }
 
     public void check(Player player) {
-        long startNanos = runningTimers.getLong(player.getUniqueId());
+        PlayerTimer timer = timers.get(player.getUniqueId());
 
-        if (startNanos == Long.MIN_VALUE) {
+        if (timer == null || !timer.isRunning()) {
             // Not running - maybe pending?
-            if (pendingTimers.contains(player.getUniqueId())) {
+            if (timer != null && timer.pending) {
                 player.sendMessage(Component.text("Timer hasn't started yet. Move to begin!", NamedTextColor.AQUA));
             } else {
                 player.sendMessage(Component.text("You don't have an active timer.", NamedTextColor.RED));
@@ -283,7 +442,7 @@ public class TimerManager {
             return;
         }
 
-        long elapsed = (System.nanoTime() - startNanos) / 1_000_000;
+        long elapsed = getElapsedMillis(timer);
         String formatted = TrackRecord.formatTime(elapsed);
         player.sendMessage(Component.text("Elapsed: ", NamedTextColor.GRAY)
                 .append(Component.text(formatted, NamedTextColor.GOLD)));
@@ -299,95 +458,128 @@ public class TimerManager {
 
     // --- Hot-path queries used by listeners ---
 
-    public boolean isPending(UUID uuid) {
-        return pendingTimers.contains(uuid);
+    /**
+     * True when pending timers are started by {@link PendingStartPoller}, not the move listener.
+     */
+    public boolean isPollingPendingStarts() {
+        return pendingPoller != null;
     }
 
-    public boolean isRunning(UUID uuid) {
-        return runningTimers.containsKey(uuid);
+    /**
+     * The player's timer, or null if they don't have one running or pending.
+     */
+    public PlayerTimer getTimer(UUID playerUUID) {
+        PlayerTimer timer = timers.get(playerUUID);
+        return timer != null && timer.isActive() ? timer : null;
     }
 
-    public long getStartTime(UUID uuid) {
-        return runningTimers.getLong(uuid);
+    public boolean hasTimer(UUID playerUUID) {
+        return getTimer(playerUUID) != null;
     }
 
-    public PlayerTimer getTimer(UUID playerUUID) {
-        return timerDetails.get(playerUUID);
+    /** Time since the timer started, on whichever clock it runs on. */
+    public long getElapsedMillis(PlayerTimer timer) {
+        return (now(timer, 1) - timer.startNanos) / 1_000_000;
     }
 
-    public boolean hasTimer(UUID playerUUID) {
-        return timerDetails.containsKey(playerUUID);
+    /**
+     * Remembers where a tick clocked runner was, so a finish can be placed within their move.
+     * Does nothing for anyone else.
+     */
+    public void recordPosition(PlayerTimer timer, Location to) {
+        if (!timer.tickClock) return;
+        timer.lastX = to.getX();
+        timer.lastZ = to.getZ();
     }
 
+    /**
+     * How far through their current move the player crossed the track's finish line, for
+     * {@link #lap} and {@link #finish}. Always 1 (now) on the wall clock.
+     */
+    public double endCrossing(PlayerTimer timer) {
+        if (!timer.tickClock) return 1;
+        Location loc = timer.player.getLocation();
+        return timer.track.endCrossing(timer.lastX, timer.lastZ, loc.getX(), loc.getZ());
+    }
+
+    // --- Clocks ---
+
+    // Tick stamps are in nanos too so both clocks share the same fields and maths. The move that
+    // crossed the line happened during the previous tick, crossing says how far into it.
+    private static long tickNanos(double crossing) {
+        return (long) ((Bukkit.getCurrentTick() - 1 + crossing) * NANOS_PER_TICK);
+    }
+
+    private static long now(PlayerTimer timer, double crossing) {
+        return timer.tickClock ? tickNanos(crossing) : System.nanoTime();
+    }
+
+    /**
+     * Drops the player's state entirely, pending submission included. For quits and deaths.
+     */
     public void removeTimer(UUID playerUUID) {
-        runningTimers.removeLong(playerUUID);
-        pendingTimers.remove(playerUUID);
-        timerDetails.remove(playerUUID);
-        pendingSubmissions.remove(playerUUID);
-        lapsRemaining.removeInt(playerUUID);
-        lastLapNanos.removeLong(playerUUID);
-        cleanupActionBarTask();
+        PlayerTimer timer = timers.get(playerUUID);
+        if (timer == null) return;
+        release(timer);
+    }
+
+    /**
+     * Cancels every run on a track that's being deleted. Each timer is ended from its
+     * player's region.
+     */
+    public void cancelTrackRuns(Track track) {
+        for (PlayerTimer timer : timers.values()) {
+            Player player = timer.player;
+            if (timer.track != track || player == null) continue;
+            Scheduling.runFor(plugin, player, () -> {
+                if (timer.track != track) return;
+                endTimer(timer);
+                player.sendMessage(Component.text("Track '" + track.getName() + "' was deleted, timer cancelled.", NamedTextColor.YELLOW));
+            });
+        }
     }
 
     // --- Action bar magic ^_^ ---
 
-    private void ensureActionBarTask() {
-        if (actionBarTask != null && !actionBarTask.isCancelled()) return;
-        actionBarTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                if (runningTimers.isEmpty()) {
-                    this.cancel();
-                    actionBarTask = null;
-                    return;
-                }
-                long now = System.nanoTime();
-                expiryList.clear();
-
-                for (UUID uuid : runningTimers.keySet()) {
-                    long startNanos = runningTimers.getLong(uuid);
-                    if (startNanos == Long.MIN_VALUE) continue;
-
-                    long elapsed = (now - startNanos) / 1_000_000;
-
-                    if (elapsed > maxTimerMillis) {
-                        expiryList.add(uuid);
-                        continue;
-                    }
-
-                    Player player = Bukkit.getPlayer(uuid);
-                    if (player == null || !player.isOnline()) continue;
-                    String formatted = TrackRecord.formatTime(elapsed);
-                    player.sendActionBar(Component.text(formatted, NamedTextColor.GOLD));
-                }
-
-                for (int i = 0; i < expiryList.size(); i++) {
-                    UUID uuid = expiryList.get(i);
-                    removeTimer(uuid);
-                    Player player = Bukkit.getPlayer(uuid);
-                    if (player != null && player.isOnline()) {
-                        player.sendMessage(Component.text("Timer expired (max duration reached).", NamedTextColor.RED));
-                        player.sendActionBar(Component.text("Timer expired", NamedTextColor.RED));
-                    }
-                }
-            }
-        }.runTaskTimer(plugin, 0L, 4L);
+    // Each running timer's own task, on the player's region
+    private void tickDisplay(PlayerTimer timer) {
+        if (timer.isRunning()) actionBar.render(timer, getElapsedMillis(timer));
+    }
+
+    // --- Deadlines ---
+
+    // Runs the action on the player's region after the given ticks, unless the timer it was
+    // set for has ended by then
+    private TimingWheel.Timeout deadline(PlayerTimer timer, long ticks, Consumer<PlayerTimer> action) {
+        int runId = timer.runId;
+        Player player = timer.player;
+        return deadlines.schedule(ticks, () -> Scheduling.runFor(plugin, player, () -> {
+            if (timer.runId == runId && timer.player == player && timer.isActive()) action.accept(timer);
+        }));
     }
 
-    private void cleanupActionBarTask() {
-        if (runningTimers.isEmpty() && actionBarTask != null) {
-            actionBarTask.cancel();
-            actionBarTask = null;
+    private void expire(PlayerTimer timer) {
+        Player player = timer.player;
+        release(timer);
+        if (player.isOnline()) {
+            player.sendMessage(Component.text("Timer expired (max duration reached).", NamedTextColor.RED));
+            player.sendActionBar(Component.text("Timer expired", NamedTextColor.RED));
         }
     }
 
+    private void pendingTimedOut(PlayerTimer timer) {
+        if (!timer.pending) return;
+        endTimer(timer);
+        timer.player.sendMessage(Component.text("Pending timer cancelled, you didn't start in time.", NamedTextColor.YELLOW));
+    }
+
     public void shutdown() {
-        if (actionBarTask != null) {
-            actionBarTask.cancel();
-            actionBarTask = null;
+        deadlines.shutdown();
+        for (PlayerTimer timer : timers.values()) {
+            if (timer.displayTask != null) timer.displayTask.cancel();
+            if (timer.pollTask != null) timer.pollTask.cancel();
         }
-        runningTimers.clear();
-        pendingTimers.clear();
-        timerDetails.clear();
+        if (pendingPoller != null) pendingPoller.cancel();
+        timers.clear();
     }
 }
@@ -0,0 +1,177 @@
+/*
+ * Copyright (C) 2026 cutelilreno <https://github.com/cutelilreno>
+ *
+ * This file is part of UltraStopwatch.
+ *
+ * UltraStopwatch is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UltraStopwatch is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with UltraStopwatch.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package world.ultravanilla.ultrastopwatch.timer;
+
+import io.papermc.paper.threadedregions.scheduler.ScheduledTask;
+import it.unimi.dsi.fastutil.objects.ObjectArrayList;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+/**
+ * Deadlines in ticks: timer expiry, pending start timeouts, trigger delays, forgotten
+ * submissions. Four levels of 64 slots, the first one tick per slot, each level above 64 times
+ * coarser, with entries moving down a level as their time gets close. Scheduling and
+ * cancelling are O(1) and a tick only looks at what's due, however many deadlines are waiting.
+ * <p>
+ * Ticks on the global region and only while something is scheduled. Tasks run there too, so
+ * anything that touches a player has to hop to their region. Safe to schedule and cancel from
+ * any thread.
+ */
+final class TimingWheel {
+
+    private static final int LEVELS = 4;
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    // About nine and a half days, anything longer is clamped
+    static final long MAX_DELAY = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+    static final class Timeout {
+        private final Runnable task;
+        private long deadline;
+        private int bucket = -1; // -1 once it has fired or been cancelled
+        private Timeout prev, next;
+
+        private Timeout(Runnable task) {
+            this.task = task;
+        }
+    }
+
+    private final Plugin plugin;
+    private final Timeout[] buckets = new Timeout[LEVELS * SLOTS];
+    private long now;
+    private int size;
+    private ScheduledTask task;
+
+    // Only touched by the ticking thread
+    private final ObjectArrayList<Timeout> due = new ObjectArrayList<>();
+
+    TimingWheel(Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Runs the task on the global region after the given number of ticks (at least one).
+     */
+    synchronized Timeout schedule(long delayTicks, Runnable task) {
+        Timeout timeout = new Timeout(task);
+        timeout.deadline = now + Math.max(1, Math.min(MAX_DELAY, delayTicks));
+        insert(timeout);
+        if (size++ == 0 && this.task == null) {
+            this.task = Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, t -> tick(), 1L, 1L);
+        }
+        return timeout;
+    }
+
+    /**
+     * Null safe, does nothing if it already ran.
+     */
+    synchronized void cancel(Timeout timeout) {
+        if (timeout == null || timeout.bucket < 0) return;
+        unlink(timeout);
+        size--;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void shutdown() {
+        if (task != null) {
+            task.cancel();
+            task = null;
+        }
+        Arrays.fill(buckets, null);
+        size = 0;
+    }
+
+    private void tick() {
+        synchronized (this) {
+            if (size == 0) {
+                // Nothing waiting, stop until the next schedule
+                if (task != null) task.cancel();
+                task = null;
+                return;
+            }
+            now++;
+            // Moving to a new block of a level pulls that block's entries down
+            for (int level = 1; level < LEVELS; level++) {
+                if ((now & ((1L << (level * SLOT_BITS)) - 1)) != 0) break;
+                cascade(level * SLOTS + (int) ((now >>> (level * SLOT_BITS)) & SLOT_MASK));
+            }
+            int bucket = (int) (now & SLOT_MASK);
+            Timeout timeout = buckets[bucket];
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                unlink(timeout);
+                size--;
+                due.add(timeout);
+                timeout = next;
+            }
+        }
+        // Outside the lock so tasks can schedule more
+        for (int i = 0; i < due.size(); i++) {
+            try {
+                due.get(i).task.run();
+            } catch (RuntimeException e) {
+                plugin.getLogger().log(Level.WARNING, "Timer deadline task failed", e);
+            }
+        }
+        due.clear();
+    }
+
+    private void cascade(int bucket) {
+        Timeout timeout = buckets[bucket];
+        buckets[bucket] = null;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            timeout.prev = null;
+            timeout.next = null;
+            insert(timeout);
+            timeout = next;
+        }
+    }
+
+    private void insert(Timeout timeout) {
+        long delay = Math.max(0, timeout.deadline - now);
+        int level = 0;
+        while (level < LEVELS - 1 && delay >= 1L << ((level + 1) * SLOT_BITS)) level++;
+        int bucket = level * SLOTS + (int) ((timeout.deadline >>> (level * SLOT_BITS)) & SLOT_MASK);
+        timeout.bucket = bucket;
+        timeout.prev = null;
+        timeout.next = buckets[bucket];
+        if (timeout.next != null) timeout.next.prev = timeout;
+        buckets[bucket] = timeout;
+    }
+
+    private void unlink(Timeout timeout) {
+        if (timeout.prev != null) {
+            timeout.prev.next = timeout.next;
+        } else {
+            buckets[timeout.bucket] = timeout.next;
+        }
+        if (timeout.next != null) timeout.next.prev = timeout.prev;
+        timeout.prev = null;
+        timeout.next = null;
+        timeout.bucket = -1;
+    }
+}